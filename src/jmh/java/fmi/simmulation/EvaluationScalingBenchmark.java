@@ -0,0 +1,85 @@
+package fmi.simmulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the evolution scales with the number of evaluation threads,
+ * for the executors which own their threads. Every invocation evolves a new
+ * worker for {@link #GENERATIONS} generations; the generations per second
+ * of the different thread counts give the speedup. The thread counts above
+ * the number of available processors only measure the overhead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationScalingBenchmark {
+
+    private static final int GENERATIONS = 10;
+
+    @Param({"fixed", "fork_join"})
+    String executor;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    private BufferedImage _image;
+    private EngineParam _param;
+    private EvolvingImagesWorker _worker;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        _image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = _image.createGraphics();
+        for (int i = 0; i < 50; ++i) {
+            g2.setColor(new Color(random.nextInt(0x1000000)));
+            g2.fillOval(random.nextInt(200), random.nextInt(200), 20 + random.nextInt(60), 20 + random.nextInt(60));
+        }
+        g2.dispose();
+
+        _param = EngineParam.builder()
+                        .populationSize(64)
+                        .tournamentSize(2)
+                        .mutationRate(0.01F)
+                        .mutationMultitude(0.1F)
+                        .polygonLength(4)
+                        .polygonCount(100)
+                        .referenceImageSize(new Dimension(200, 200))
+                        .renderer(Renderer.SOFTWARE)
+                        .evaluationExecutor(EvaluationExecutor.parse(executor))
+                        .evaluationThreads(threads)
+                        .build();
+    }
+
+    @Setup(Level.Invocation)
+    public void worker() {
+        _worker = EvolvingImagesWorker.of(_param, _image);
+    }
+
+    @Benchmark
+    public long evolve() throws InterruptedException {
+        _worker.start(null, null, result -> result.getGeneration() < GENERATIONS);
+        _worker.join();
+        return _worker.getEvaluations();
+    }
+
+}
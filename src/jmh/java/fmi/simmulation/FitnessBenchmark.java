@@ -0,0 +1,84 @@
+package fmi.simmulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scoring of a rendered working image: copying the raster with
+ * {@code getData().getPixels(...)} into one int per channel, as the fitness
+ * function originally did, against reading the packed ARGB pixels of its
+ * {@code DataBufferInt}. The rendering itself is the same for both and not
+ * measured. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FitnessBenchmark {
+
+    @Param({"60", "200"})
+    int size;
+
+    private BufferedImage _image;
+    private int[] _channels;
+    private int[] _pixels;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final BufferedImage reference = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                reference.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+            }
+        }
+        _channels = reference.getData().getPixels(0, 0, size, size, (int[])null);
+        _pixels = ReferenceImage.pixels(reference);
+
+        _image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = _image.createGraphics();
+        new PolygonChromosome(250, 4).draw(g2, size, size);
+        g2.dispose();
+    }
+
+    @Benchmark
+    public double rasterCopy() {
+        final int[] testPixels = _image.getData().getPixels(0, 0, size, size, (int[])null);
+        final int[] refPixels = _channels;
+
+        int difference = 0;
+        int p = size*size*4 - 1;
+        int idx = 0;
+        do {
+            if (idx++%4 != 0) {
+                int dp = testPixels[p] - refPixels[p];
+                difference += (dp < 0) ? -dp : dp;
+            }
+        } while (--p > 0);
+
+        return 1.0 - difference/(size*size*3.0*256);
+    }
+
+    @Benchmark
+    public double packed() {
+        final long difference = PixelDifference.sum(ReferenceImage.pixels(_image), _pixels, 0, size*size);
+        return 1.0 - difference/(size*size*3.0*256);
+    }
+
+}
@@ -0,0 +1,116 @@
+package fmi.simmulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the pixel difference kernels over square images of different
+ * sizes: the original loop over one int per channel, which skips the alpha
+ * channel with {@code idx%4}, the packed ARGB kernel with separate offsets
+ * for both arrays, and the current {@link PixelDifference#sum} kernels: the
+ * one for images at the same positions, and the one which scores the band
+ * buffer of the {@link PolygonRasterizer} against the rows of the reference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelDifferenceBenchmark {
+
+    @Param({"60", "200", "600", "1000"})
+    int size;
+
+    private int[] _testChannels;
+    private int[] _refChannels;
+    private int[] _test;
+    private int[] _ref;
+    private int[] _band;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        _test = new int[size*size];
+        _ref = new int[size*size];
+        _testChannels = new int[4*size*size];
+        _refChannels = new int[4*size*size];
+        for (int i = 0; i < size*size; ++i) {
+            _test[i] = 0xFF000000 | random.nextInt(0x1000000);
+            _ref[i] = 0xFF000000 | random.nextInt(0x1000000);
+            for (int c = 0; c < 4; ++c) {
+                _testChannels[4*i + c] = (_test[i] >>> (8*(2 - c) & 31)) & 0xFF;
+                _refChannels[4*i + c] = (_ref[i] >>> (8*(2 - c) & 31)) & 0xFF;
+            }
+        }
+        _band = new int[size*PolygonRasterizer.BAND_ROWS];
+        System.arraycopy(_test, 0, _band, 0, _band.length);
+    }
+
+    @Benchmark
+    public int channels() {
+        final int[] testPixels = _testChannels;
+        final int[] refPixels = _refChannels;
+
+        int difference = 0;
+        int p = size*size*4 - 1;
+        int idx = 0;
+        do {
+            if (idx++%4 != 0) {
+                int dp = testPixels[p] - refPixels[p];
+                difference += (dp < 0) ? -dp : dp;
+            }
+        } while (--p > 0);
+
+        return difference;
+    }
+
+    @Benchmark
+    public int packedOffsets() {
+        return offsets(_test, 0, _ref, 0, size*size);
+    }
+
+    private static int offsets(final int[] test, final int testOffset, final int[] ref, final int refOffset, final int length) {
+        int difference = 0;
+        for (int i = 0; i < length; ++i) {
+            final int a = test[testOffset + i];
+            final int b = ref[refOffset + i];
+
+            final int dr = ((a >> 16) & 0xFF) - ((b >> 16) & 0xFF);
+            final int dg = ((a >> 8) & 0xFF) - ((b >> 8) & 0xFF);
+            final int db = (a & 0xFF) - (b & 0xFF);
+            difference += ((dr < 0) ? -dr : dr) + ((dg < 0) ? -dg : dg) + ((db < 0) ? -db : db);
+        }
+
+        return difference;
+    }
+
+    @Benchmark
+    public long kernel() {
+        return PixelDifference.sum(_test, _ref, 0, size*size);
+    }
+
+    @Benchmark
+    public long bandKernel() {
+        long difference = 0;
+        for (int y0 = 0; y0 < size; y0 += PolygonRasterizer.BAND_ROWS) {
+            final int rows = Math.min(PolygonRasterizer.BAND_ROWS, size - y0);
+            difference += PixelDifference.sum(_band, 0, _ref, y0*size, rows*size);
+        }
+
+        return difference;
+    }
+
+}
@@ -0,0 +1,78 @@
+package fmi.simmulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the contention of the {@link PrefixRenderCache}: four threads
+ * draw chromosomes, which share their prefixes with each other, through one
+ * cache. {@code stripes = 1} is a single lock around all lookups and canvas
+ * copies, like the original cache. The threads only contend if the machine
+ * has enough processors to run them in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class PrefixRenderCacheBenchmark {
+
+    private static final int SIZE = 200;
+    private static final int POLYGONS = 100;
+    private static final int LENGTH = 4;
+
+    @Param({"1", "16"})
+    int stripes;
+
+    private PrefixRenderCache _cache;
+    private PolygonChromosome[] _chromosomes;
+
+    @Setup
+    public void setup() {
+        _cache = new PrefixRenderCache(64, SIZE, SIZE, stripes);
+
+        // Variants of a few parents, which differ in one polygon of the
+        // last quarter, like the offspring of the mutation.
+        final Random random = new Random(42);
+        _chromosomes = new PolygonChromosome[64];
+        for (int i = 0; i < _chromosomes.length; ++i) {
+            final float[] data = new PolygonChromosome(POLYGONS, LENGTH).toArray();
+            if (i >= 8) {
+                System.arraycopy(_chromosomes[i%8].toArray(), 0, data, 0, data.length);
+                final int polygon = POLYGONS*3/4 + random.nextInt(POLYGONS/4);
+                data[polygon*Polygon.size(LENGTH)] = random.nextFloat();
+            }
+            _chromosomes[i] = PolygonChromosome.of(data, POLYGONS, LENGTH);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        final PolygonRasterizer rasterizer = new PolygonRasterizer(SIZE, SIZE);
+        final int[] pixels = new int[SIZE*SIZE];
+        final Random random = new Random();
+    }
+
+    @Benchmark
+    public int draw(final Worker worker) {
+        final PolygonChromosome chromosome = _chromosomes[worker.random.nextInt(_chromosomes.length)];
+        worker.rasterizer.draw(chromosome, worker.pixels, _cache);
+        return worker.pixels[0];
+    }
+
+}
@@ -0,0 +1,126 @@
+package fmi.simmulation;
+
+import io.jenetics.engine.EvolutionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Compares the exact fitness, {@code samplePixels = 0}, with the fitness
+ * sampled from the given number of pixels of a 240x240 reference image.
+ * {@link #evaluate} measures the scoring of a single chromosome, which gives
+ * the speedup of the sampling. {@link #evolve} measures the evolution of a
+ * new worker for {@link #GENERATIONS} generations; the mean exact fitness of
+ * its best individuals, printed at the end of every trial, gives the quality
+ * hit of the sampling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampledFitnessBenchmark {
+
+    private static final int SIZE = 240;
+    private static final int GENERATIONS = 30;
+
+    @Param({"0", "1440", "5760"})
+    int samplePixels;
+
+    private BufferedImage _image;
+    private int[] _reference;
+    private int[] _rows;
+    private PolygonRasterizer _rasterizer;
+    private PolygonChromosome _chromosome;
+    private EngineParam _param;
+    private EvolvingImagesWorker _worker;
+    private EvolutionResult<PolygonGene, Double> _best;
+
+    private double _exactFitness;
+    private int _runs;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        _image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = _image.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, SIZE, SIZE);
+        for (int i = 0; i < 60; ++i) {
+            g2.setColor(new Color(random.nextInt(0x1000000)));
+            g2.fillOval(random.nextInt(SIZE), random.nextInt(SIZE), 20 + random.nextInt(80), 20 + random.nextInt(80));
+        }
+        g2.dispose();
+
+        final ReferenceImage reference = ReferenceImage.of(_image, SIZE, SIZE, 0);
+        _reference = reference.pixels();
+        _rows = reference.sampleRows(samplePixels, 0);
+        _rasterizer = new PolygonRasterizer(SIZE, SIZE);
+        _chromosome = new PolygonChromosome(100, 4);
+
+        _param = EngineParam.builder()
+                        .populationSize(32)
+                        .tournamentSize(2)
+                        .mutationRate(0.01F)
+                        .mutationMultitude(0.1F)
+                        .polygonLength(4)
+                        .polygonCount(100)
+                        .referenceImageSize(new Dimension(SIZE, SIZE))
+                        .renderer(Renderer.FUSED)
+                        .evaluationThreads(1)
+                        .fitnessSamplePixels(samplePixels)
+                        .build();
+    }
+
+    @Benchmark
+    public long evaluate() {
+        return samplePixels > 0
+                        ? _rasterizer.difference(_chromosome, _reference, _rows)
+                        : _rasterizer.difference(_chromosome, _reference, 0, SIZE);
+    }
+
+    @Setup(Level.Invocation)
+    public void worker() {
+        _worker = EvolvingImagesWorker.of(_param, _image);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double evolve() throws InterruptedException {
+        _worker.start((result, best) -> _best = best, null, result -> result.getGeneration() <= GENERATIONS);
+        _worker.join();
+
+        final PolygonChromosome best = (PolygonChromosome)_best.getBestPhenotype().getGenotype().getChromosome();
+        final double fitness = 1.0 - _rasterizer.difference(best, _reference, 0, SIZE)/(SIZE*SIZE*3.0*256);
+        _exactFitness += fitness;
+        _runs++;
+        return fitness;
+    }
+
+    @TearDown
+    public void report() {
+        if (_runs > 0) {
+            System.out.println(format("%nsample pixels=%d: exact best fitness after %d generations %1.4f (mean of %d runs)",
+                            samplePixels, GENERATIONS, _exactFitness/_runs, _runs));
+        }
+    }
+
+}
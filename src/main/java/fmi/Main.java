@@ -2,11 +2,16 @@ package fmi;
 
 import fmi.recognition.Recognizer;
 import fmi.simmulation.EvolvingImages;
+import fmi.simmulation.MigrationCoordinator;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static java.lang.System.getProperty;
 
@@ -14,27 +19,84 @@ public class Main {
 
     private static final String IMAGE_DIR = "--image-dir";
     private static final String INCEPTION_DIR = "--inception-dir";
+    private static final String PORT = "--port";
+
+    private static final int DEFAULT_PORT = 7777;
+    private static final long STATUS_INTERVAL = 10_000;
 
     public static void main(String[] args) {
         if (args.length >= 1 && "evolve".equalsIgnoreCase(args[0])) {
             final Map<String, String> params = toMap(args);
 
-            File inceptionDirFile = Optional
-                            .ofNullable(params.get(INCEPTION_DIR))
-                            .map(x -> new File(System.getProperty("user.dir") + x))
-                            .orElse(new File(getProperty("user.dir"), "default"));
-            File imageDirFile = Optional
+            // The image is classified in the background, while the evolution begins.
+            final CompletableFuture<Void> classification = Optional
                             .ofNullable(params.get(IMAGE_DIR))
-                            .map(x -> new File(System.getProperty("user.dir") + x))
-                            .orElse(new File(getProperty("user.dir"), "default"));
+                            .map(x -> classify(inceptionDir(params), new File(System.getProperty("user.dir") + x)))
+                            .orElse(null);
 
-            new Recognizer(inceptionDirFile, imageDirFile);
             EvolvingImages ev = new EvolvingImages(params);
             ev.run();
+            if (classification != null) {
+                classification.join();
+            }
+        } else if (args.length >= 1 && "coordinate".equalsIgnoreCase(args[0])) {
+            final Map<String, String> params = toMap(args);
+            final int port = Optional
+                            .ofNullable(params.get(PORT))
+                            .map(Integer::parseInt)
+                            .orElse(DEFAULT_PORT);
+
+            coordinate(port);
+        }
+    }
+
+    /**
+     * Run the migration coordinator of a distributed evolution, until the
+     * process is killed. The nodes are started with
+     * {@code evolve --coordinator <host:port>}.
+     */
+    private static void coordinate(final int port) {
+        try (MigrationCoordinator coordinator = MigrationCoordinator.open(new InetSocketAddress(port))) {
+            System.out.println("Migration coordinator listening on port " + coordinator.getPort() + ".");
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(STATUS_INTERVAL);
+                System.out.println(coordinator);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
 
+    private static File inceptionDir(final Map<String, String> params) {
+        return Optional
+                        .ofNullable(params.get(INCEPTION_DIR))
+                        .map(x -> new File(System.getProperty("user.dir") + x))
+                        .orElse(new File(getProperty("user.dir"), "default"));
+    }
+
+    /**
+     * Load the Inception model in the background and print the classification
+     * of the given image. Errors are printed, not thrown.
+     */
+    private static CompletableFuture<Void> classify(final File inceptionDir, final File image) {
+        return Recognizer.loadAsync(inceptionDir, 0)
+                        .thenAccept(recognizer -> {
+                            try (Recognizer r = recognizer) {
+                                System.out.println(String.format("Loaded recognition model in %1.1fs.", r.getLoadTime().toMillis()/1000.0));
+                                System.out.println(r.classify(image.toPath()));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        })
+                        .exceptionally(e -> {
+                            System.err.println("Can't classify [" + image + "]: " + e.getCause());
+                            return null;
+                        });
+    }
+
     private static Map<String, String> toMap(final String[] args) {
         final Map<String, String> props = new HashMap<>();
         for (int i = 1; i < args.length; i += 2) {
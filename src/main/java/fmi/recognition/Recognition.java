@@ -0,0 +1,66 @@
+package fmi.recognition;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The classification of one image by the {@link Recognizer}: the
+ * probabilities of all labels of the model.
+ */
+public final class Recognition {
+
+    private final Path _image;
+    private final List<String> _labels;
+    private final float[] _probabilities;
+    private final int _best;
+
+    Recognition(Path image, List<String> labels, float[] probabilities) {
+        _image = image;
+        _labels = labels;
+        _probabilities = probabilities;
+        _best = maxIndex(probabilities);
+    }
+
+    private static int maxIndex(float[] probabilities) {
+        int best = 0;
+        for (int i = 1; i < probabilities.length; ++i) {
+            if (probabilities[i] > probabilities[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public Path getImage() {
+        return _image;
+    }
+
+    /**
+     * Return the most likely label.
+     */
+    public String getLabel() {
+        return _best < _labels.size() ? _labels.get(_best) : String.valueOf(_best);
+    }
+
+    /**
+     * Return the probability of the most likely label.
+     */
+    public float getProbability() {
+        return _probabilities[_best];
+    }
+
+    /**
+     * Return the probability of the given label, or zero if the model doesn't
+     * know it.
+     */
+    public float getProbability(String label) {
+        final int index = _labels.indexOf(label);
+        return index >= 0 && index < _probabilities.length ? _probabilities[index] : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BEST MATCH: %s (%.2f%% likely)", getLabel(), getProbability() * 100f);
+    }
+
+}
@@ -1,101 +1,412 @@
 package fmi.recognition;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.imageio.ImageIO;
 import org.tensorflow.Graph;
 import org.tensorflow.Session;
 import org.tensorflow.Tensor;
 
-import fmi.simmulation.EvolvingImages;
-
-import static java.lang.System.getProperty;
-
 /**
+ * Classifies images with the pre-trained Inception model. The graph is
+ * imported and the session is opened once, when the recognizer is loaded,
+ * and are shared by all classifications until the recognizer is closed.
+ * The recognizer can be used by concurrent threads. The session runs on the
+ * CPU only, with a limited number of threads if requested, so that it
+ * doesn't compete with the evolution for all processors. Loading takes
+ * seconds, so it can be done in the background with
+ * {@link #loadAsync(File, int)}.
  *
  * pre-trained inception model from here: https://storage.googleapis.com/download.tensorflow.org/models/inception_dec_2015.zip
  *
  */
-public class Recognizer {
+public final class Recognizer implements AutoCloseable {
 
     private static final String TENSORFLOW_GRAPH = "tensorflow_inception_graph.pb";
     private static final String TENSORFLOW_LABEL_STRING = "imagenet_comp_graph_label_strings.txt";
 
-    private byte[] graphDef;
-    private List<String> labels;
+    private static final String OUTPUT = "softmax";
+
+    // The decoded, resized and normalized image: (pixel - mean)/std.
+    private static final String PIXELS_INPUT = "Mul";
+    private static final int IMAGE_SIZE = 299;
+    private static final float IMAGE_MEAN = 128f;
+    private static final float IMAGE_STD = 128f;
+    private static final int IMAGE_FLOATS = IMAGE_SIZE * IMAGE_SIZE * 3;
+
+    // Reused by the raw pixel classifications of each thread.
+    private static final ThreadLocal<FloatBuffer> PIXELS =
+            ThreadLocal.withInitial(() -> FloatBuffer.allocate(IMAGE_FLOATS));
+
+    private final List<String> _labels;
+    private final Graph _graph;
+    private final Session _session;
+    private final Duration _loadTime;
+
+    // Classifications hold the read lock, closing the write lock.
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+    private boolean _closed = false;
+    // Cleared when the graph rejects a batch of more than one image.
+    private volatile boolean _batching = true;
+
+    private Recognizer(byte[] graphDef, List<String> labels, int threads, long start) {
+        _labels = Collections.unmodifiableList(labels);
+        _graph = new Graph();
+        try {
+            _graph.importGraphDef(graphDef);
+            _session = new Session(_graph, config(threads));
+        } catch (RuntimeException e) {
+            _graph.close();
+            throw e;
+        }
+        _loadTime = Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Load the model from the given directory, which contains the graph and
+     * the label strings of the Inception model.
+     *
+     * @param threads the number of threads TensorFlow uses for one
+     *        classification, a value &le; 0 uses its default
+     * @throws IOException if the model can't be read
+     * @throws IllegalArgumentException if the graph is invalid
+     */
+    public static Recognizer load(File inceptionDirFile, int threads) throws IOException {
+        final long start = System.nanoTime();
+        final byte[] graphDef = readGraph(Paths.get(inceptionDirFile.getAbsolutePath(), TENSORFLOW_GRAPH));
+        final List<String> labels = Files.readAllLines(
+                        Paths.get(inceptionDirFile.getAbsolutePath(), TENSORFLOW_LABEL_STRING), StandardCharsets.UTF_8);
+
+        return new Recognizer(graphDef, labels, threads, start);
+    }
+
+    /**
+     * Load the model in the background, on a daemon thread. The returned
+     * future completes exceptionally if the model can't be loaded.
+     *
+     * @see #load(File, int)
+     */
+    public static CompletableFuture<Recognizer> loadAsync(File inceptionDirFile, int threads) {
+        final CompletableFuture<Recognizer> recognizer = new CompletableFuture<>();
+        final Thread loader = new Thread(() -> {
+            try {
+                recognizer.complete(load(inceptionDirFile, threads));
+            } catch (IOException | RuntimeException e) {
+                recognizer.completeExceptionally(e);
+            }
+        }, "recognizer-loader");
+        loader.setDaemon(true);
+        loader.start();
+
+        return recognizer;
+    }
+
+    /**
+     * Read the graph through a memory mapping of the file. The TensorFlow
+     * Java API imports a graph only from a byte array, so the mapping is
+     * copied once, into an array of the exact size, which can be collected
+     * as soon as the graph has been imported.
+     */
+    private static byte[] readGraph(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Graph file too large: '%s' (%d bytes)", path, size));
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final byte[] graphDef = new byte[(int)size];
+            buffer.get(graphDef);
+            return graphDef;
+        }
+    }
+
+    /**
+     * Return the time it took to read the model, import the graph and open
+     * the session.
+     */
+    public Duration getLoadTime() {
+        return _loadTime;
+    }
+
+    /**
+     * Return a serialized {@code tensorflow.ConfigProto}, which hides all
+     * GPUs and sets the given number of intra- and inter-op threads. It is
+     * encoded by hand, since the protobuf classes aren't part of the
+     * TensorFlow Java API.
+     */
+    private static byte[] config(int threads) {
+        final ByteArrayOutputStream config = new ByteArrayOutputStream();
+        // device_count (1): map entry {key (1): "GPU", value (2): 0}
+        config.write(0x0A);
+        config.write(7);
+        config.write(0x0A);
+        config.write(3);
+        config.write('G');
+        config.write('P');
+        config.write('U');
+        config.write(0x10);
+        config.write(0);
+        if (threads > 0) {
+            // intra_op_parallelism_threads (2) and inter_op_parallelism_threads (5)
+            config.write(0x10);
+            writeVarint(config, threads);
+            config.write(0x28);
+            writeVarint(config, threads);
+        }
+        return config.toByteArray();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Return the labels of the model, in the order of the probabilities of a
+     * {@link Recognition}.
+     */
+    public List<String> getLabels() {
+        return _labels;
+    }
+
+    /**
+     * Classify the given image.
+     *
+     * @throws IOException if the image can't be read
+     * @throws IllegalStateException if the recognizer has been closed
+     */
+    public Recognition classify(Path image) throws IOException {
+        return classify(Collections.singletonList(image)).get(0);
+    }
+
+    /**
+     * Classify the given images, in any format {@code ImageIO} can read. All
+     * images are read, scaled and normalized before they are fed to the
+     * graph after its JPEG decoding, as one batch with a single run of the
+     * session. If the graph only accepts a batch of one image, the images
+     * are classified one by one, and the following batches too.
+     *
+     * @return the recognitions, in the order of the given images
+     * @throws IOException if one of the images can't be read
+     * @throws IllegalStateException if the recognizer has been closed
+     */
+    public List<Recognition> classify(List<Path> images) throws IOException {
+        final int count = images.size();
+        final FloatBuffer pixels = FloatBuffer.allocate(count * IMAGE_FLOATS);
+        for (int i = 0; i < count; ++i) {
+            final BufferedImage image = ImageIO.read(images.get(i).toFile());
+            if (image == null) {
+                throw new IOException(String.format("Unsupported image format: '%s'", images.get(i)));
+            }
+            resize(image, pixels.array(), i * IMAGE_FLOATS);
+        }
 
-    public Recognizer(File inceptionDirFile, File imageDirFile) {
+        final float[][] probabilities;
+        _lock.readLock().lock();
+        try {
+            if (_closed) {
+                throw new IllegalStateException("Recognizer has been closed.");
+            }
+            probabilities = executeInceptionGraph(pixels, count);
+        } finally {
+            _lock.readLock().unlock();
+        }
 
-        graphDef = readAllBytesOrExit(Paths.get(inceptionDirFile.getAbsolutePath(),TENSORFLOW_GRAPH));
-        labels = readAllLinesOrExit(Paths.get(inceptionDirFile.getAbsolutePath(),TENSORFLOW_LABEL_STRING));
-        byte[] imageBytes = readAllBytesOrExit(imageDirFile.toPath());
-        if(imageBytes == null) {
-            throw  new RuntimeException("Image bytes is null.");
+        final List<Recognition> recognitions = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            recognitions.add(new Recognition(images.get(i), _labels, probabilities[i]));
         }
-        try (Tensor image = Tensor.create(imageBytes)) {
-            float[] labelProbabilities = executeInceptionGraph(graphDef, image);
-            int bestLabelIdx = maxIndex(labelProbabilities);
-            System.out.println(
-                    String.format(
-                            "BEST MATCH: %s (%.2f%% likely)",
-                            labels.get(bestLabelIdx), labelProbabilities[bestLabelIdx] * 100f));
+        return recognitions;
+    }
+
+    /**
+     * Classify the given image. The pixels are scaled and normalized into a
+     * float tensor, which is fed to the graph after its JPEG decoding, so
+     * the image is neither encoded nor decoded.
+     *
+     * @throws IllegalStateException if the recognizer has been closed
+     */
+    public Recognition classify(BufferedImage image) {
+        final FloatBuffer pixels = PIXELS.get();
+        resize(image, pixels.array(), 0);
+        return classify(pixels);
+    }
+
+    /**
+     * Classify the given image, given as ARGB pixels in row order. The alpha
+     * channel is ignored. The pixels are scaled and normalized into a float
+     * tensor, which is fed to the graph after its JPEG decoding.
+     *
+     * @throws IllegalArgumentException if the array doesn't contain
+     *         {@code width*height} pixels
+     * @throws IllegalStateException if the recognizer has been closed
+     */
+    public Recognition classify(int[] argb, int width, int height) {
+        if (width <= 0 || height <= 0 || argb.length < width*height) {
+            throw new IllegalArgumentException(String.format(
+                            "Expected %dx%d pixels, but got %d.", width, height, argb.length));
         }
+
+        final FloatBuffer pixels = PIXELS.get();
+        resize(argb, 0, width, width, height, pixels.array(), 0);
+        return classify(pixels);
     }
 
-    private static float[] executeInceptionGraph(byte[] graphDef, Tensor image) {
-        try (Graph g = new Graph()) {
-            g.importGraphDef(graphDef);
-            try (Session s = new Session(g);
-                    Tensor result = s.runner().feed("DecodeJpeg/contents", image).fetch("softmax").run().get(0)) {
-                final long[] rshape = result.shape();
-                if (result.numDimensions() != 2 || rshape[0] != 1) {
-                    throw new RuntimeException(
-                            String.format(
-                                    "Expected model to produce a [1 N] shaped tensor where N is the number of labels, instead it produced one with shape %s",
-                                    Arrays.toString(rshape)));
+    private Recognition classify(FloatBuffer pixels) {
+        pixels.clear();
+        _lock.readLock().lock();
+        try {
+            if (_closed) {
+                throw new IllegalStateException("Recognizer has been closed.");
+            }
+            return new Recognition(null, _labels, executeInceptionGraph(pixels, 1)[0]);
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scale and normalize the pixels of the given image into the given
+     * array, starting at the given index. Packed {@code int} images are read
+     * from their data buffer, with their offset and scanline stride, so
+     * sub-images are read correctly; other images are converted with
+     * {@code getRGB}.
+     */
+    private static void resize(BufferedImage image, float[] data, int index) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final WritableRaster raster = image.getRaster();
+        if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            final SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            final DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            final int offset = buffer.getOffset()
+                    + model.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+            resize(buffer.getData(), offset, model.getScanlineStride(), width, height, data, index);
+        } else {
+            resize(image.getRGB(0, 0, width, height, null, 0, width), 0, width, width, height, data, index);
+        }
+    }
+
+    /**
+     * Scale the given pixels bilinearly to the input size of the graph, like
+     * its {@code ResizeBilinear} operation, and normalize them into the
+     * given array, starting at the given index. The pixel {@code (x, y)} is
+     * read from {@code argb[offset + y*stride + x]}.
+     */
+    private static void resize(int[] argb, int offset, int stride, int width, int height, float[] data, int index) {
+        final float sx = (float) width / IMAGE_SIZE;
+        final float sy = (float) height / IMAGE_SIZE;
+
+        for (int y = 0; y < IMAGE_SIZE; ++y) {
+            final float fy = y * sy;
+            final int y0 = (int) fy;
+            final int y1 = Math.min(y0 + 1, height - 1);
+            final float dy = fy - y0;
+            for (int x = 0; x < IMAGE_SIZE; ++x) {
+                final float fx = x * sx;
+                final int x0 = (int) fx;
+                final int x1 = Math.min(x0 + 1, width - 1);
+                final float dx = fx - x0;
+
+                final int p00 = argb[offset + y0 * stride + x0];
+                final int p01 = argb[offset + y0 * stride + x1];
+                final int p10 = argb[offset + y1 * stride + x0];
+                final int p11 = argb[offset + y1 * stride + x1];
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    final float top = channel(p00, shift) + (channel(p01, shift) - channel(p00, shift)) * dx;
+                    final float bottom = channel(p10, shift) + (channel(p11, shift) - channel(p10, shift)) * dx;
+                    data[index++] = (top + (bottom - top) * dy - IMAGE_MEAN) / IMAGE_STD;
                 }
-                int nlabels = (int) rshape[1];
-                return result.copyTo(new float[1][nlabels])[0];
             }
         }
     }
 
-    private static int maxIndex(float[] probabilities) {
-        int best = 0;
-        for (int i = 1; i < probabilities.length; ++i) {
-            if (probabilities[i] > probabilities[best]) {
-                best = i;
+    private static float channel(int argb, int shift) {
+        return (argb >>> shift) & 0xFF;
+    }
+
+    /**
+     * Return the probabilities of the given number of normalized images,
+     * which are run as one batch if the graph accepts it, and one by one
+     * otherwise. Must be called with the read lock held.
+     */
+    private float[][] executeInceptionGraph(FloatBuffer pixels, int count) {
+        if (count > 1 && _batching) {
+            try {
+                return executeInceptionGraph(pixels, 0, count);
+            } catch (RuntimeException e) {
+                // The graph has a fixed batch size of one.
+                _batching = false;
             }
         }
-        return best;
+
+        final float[][] probabilities = new float[count][];
+        for (int i = 0; i < count; ++i) {
+            probabilities[i] = executeInceptionGraph(pixels, i, 1)[0];
+        }
+        return probabilities;
     }
 
-    private static byte[] readAllBytesOrExit(Path path) {
-        try {
-            return Files.readAllBytes(path);
-        } catch (IOException e) {
-            System.err.println("Failed to read [" + path + "]: " + e.getMessage());
-            System.exit(1);
+    private float[][] executeInceptionGraph(FloatBuffer pixels, int first, int count) {
+        final FloatBuffer batch = pixels.duplicate();
+        batch.position(first * IMAGE_FLOATS);
+        batch.limit((first + count) * IMAGE_FLOATS);
+        try (Tensor image = Tensor.create(new long[] {count, IMAGE_SIZE, IMAGE_SIZE, 3}, batch.slice());
+             Tensor result = _session.runner().feed(PIXELS_INPUT, image).fetch(OUTPUT).run().get(0)) {
+            final long[] rshape = result.shape();
+            if (result.numDimensions() != 2 || rshape[0] != count) {
+                throw new RuntimeException(
+                        String.format(
+                                "Expected model to produce a [%d N] shaped tensor where N is the number of labels, instead it produced one with shape %s",
+                                count, Arrays.toString(rshape)));
+            }
+            int nlabels = (int) rshape[1];
+            return result.copyTo(new float[count][nlabels]);
         }
-        return null;
     }
 
-    private static List<String> readAllLinesOrExit(Path path) {
+    /**
+     * Close the session and release the graph. Waits for running
+     * classifications to finish.
+     */
+    @Override
+    public void close() {
+        _lock.writeLock().lock();
         try {
-            return Files.readAllLines(path, Charset.forName("UTF-8"));
-        } catch (IOException e) {
-            System.err.println("Failed to read [" + path + "]: " + e.getMessage());
-            System.exit(0);
+            if (!_closed) {
+                _closed = true;
+                _session.close();
+                _graph.close();
+            }
+        } finally {
+            _lock.writeLock().unlock();
         }
-        return null;
     }
 
 }
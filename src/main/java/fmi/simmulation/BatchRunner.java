@@ -0,0 +1,323 @@
+package fmi.simmulation;
+
+import io.jenetics.Phenotype;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Evolves many images in one JVM. Up to a given number of jobs run
+ * concurrently, each with its own {@link EvolvingImagesWorker}, and all
+ * workers evaluate their fitness on one {@link FairEvaluationPool}. A job
+ * ends when one of its {@link Termination} rules applies; then the best
+ * chromosome is written to the output directory. A summary of all
+ * jobs is written to {@code summary.csv}. While a job runs, its metrics are
+ * published under the name of the job. The name of a job is the file name of
+ * its image without the extension, numbered if an earlier job already has
+ * the name, e.g. {@code cat} and {@code cat-2} for {@code a/cat.png} and
+ * {@code b/cat.png}.
+ *
+ * The jobs are either all images of a directory, or listed in a manifest
+ * file with one job per line:
+ * <pre>
+ * # image [generations [target fitness]]
+ * cat.png 5000 0.98
+ * dog.png
+ * </pre>
+ * Relative image paths are resolved against the directory of the manifest.
+ */
+final class BatchRunner {
+
+    private static final String SUMMARY_FILE = "summary.csv";
+
+    private final EngineParam _param;
+    private final List<Job> _jobs;
+    private final File _outputDir;
+    private final Duration _timeBudget;
+    private final int _stagnation;
+    private final int _concurrentJobs;
+    private final SnapshotWriter _writer;
+    private volatile Consumer<? super PolygonChromosome> _evaluationListener;
+
+    private BatchRunner(
+                    final EngineParam param,
+                    final List<Job> jobs,
+                    final File outputDir,
+                    final Duration timeBudget,
+                    final int stagnation,
+                    final int concurrentJobs,
+                    final SnapshotWriter writer)
+    {
+        _param = param;
+        _jobs = jobs;
+        _outputDir = outputDir;
+        _timeBudget = timeBudget;
+        _stagnation = stagnation;
+        _concurrentJobs = concurrentJobs;
+        _writer = writer;
+    }
+
+    /**
+     * Set the listener which is called with every chromosome evaluated by
+     * any job.
+     *
+     * @see EvolvingImagesWorker#evaluationListener(Consumer)
+     */
+    void evaluationListener(final Consumer<? super PolygonChromosome> listener) {
+        _evaluationListener = requireNonNull(listener);
+    }
+
+    /**
+     * Run all jobs and return when they are finished.
+     *
+     * @param metrics the exporter the metrics of the running jobs are
+     *        published with
+     */
+    void run(final MetricsExporter metrics) throws InterruptedException {
+        final long start = System.nanoTime();
+        final ExecutorService jobs = Executors.newFixedThreadPool(_concurrentJobs);
+        try (FairEvaluationPool pool = new FairEvaluationPool(_param.getEvaluationThreads())) {
+            for (Job job : _jobs) {
+                jobs.execute(() -> run(job, pool, metrics));
+            }
+            jobs.shutdown();
+            jobs.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            jobs.shutdownNow();
+            _writer.close();
+        }
+
+        writeSummary(new File(_outputDir, SUMMARY_FILE), (System.nanoTime() - start)/1e9);
+    }
+
+    private void run(final Job job, final FairEvaluationPool pool, final MetricsExporter metrics) {
+        final long start = System.nanoTime();
+        try {
+            final BufferedImage image = ImageIO.read(job.image.toFile());
+            if (image == null) {
+                throw new IOException(format("Unsupported image format: '%s'", job.image));
+            }
+
+            final EvolvingImagesWorker worker = EvolvingImagesWorker.of(_param, image, pool.newLane());
+            final Consumer<? super PolygonChromosome> listener = _evaluationListener;
+            if (listener != null) {
+                worker.evaluationListener(listener);
+            }
+            final Termination termination = Termination.of(worker, job.generations, job.targetFitness, _timeBudget, _stagnation);
+            _writer.registerMetrics(worker.getMetrics());
+            metrics.register(job.name, worker.getMetrics());
+            try {
+                worker.start(
+                                (current, best) -> {
+                                    job.best = best.getBestPhenotype();
+                                    job.generation = current.getGeneration();
+                                },
+                                null,
+                                termination);
+                worker.join();
+                if (worker.getFailure() != null) {
+                    throw worker.getFailure();
+                }
+            } finally {
+                metrics.unregister(job.name);
+            }
+
+            final Phenotype<PolygonGene, Double> best = job.best;
+            if (best != null) {
+                final PolygonChromosome chromosome = (PolygonChromosome)best.getGenotype().getChromosome();
+                _writer.write(_outputDir, job.name, chromosome, image.getWidth(), image.getHeight());
+            }
+            job.evaluations = worker.getEvaluations();
+            job.status = best != null ? "done" : "empty";
+            job.reason = termination.getReason();
+        } catch (IOException | RuntimeException e) {
+            job.status = "failed: " + e.getMessage();
+        } catch (InterruptedException e) {
+            job.status = "interrupted";
+            Thread.currentThread().interrupt();
+        } finally {
+            job.seconds = (System.nanoTime() - start)/1e9;
+            System.out.println(job);
+        }
+    }
+
+    private void writeSummary(final File file, final double seconds) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            out.println("name,image,status,reason,generations,fitness,evaluations,seconds");
+            for (Job job : _jobs) {
+                out.println(format(Locale.ROOT, "%s,%s,%s,%s,%d,%1.6f,%d,%1.3f",
+                                job.name, job.image, job.status.replace(',', ';'),
+                                job.reason != null ? job.reason.replace(',', ';') : "",
+                                job.getGeneration(), job.getFitness(), job.evaluations, job.seconds));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final long done = _jobs.stream().filter(job -> "done".equals(job.status)).count();
+        final double fitness = _jobs.stream().mapToDouble(Job::getFitness).filter(f -> !Double.isNaN(f)).average().orElse(Double.NaN);
+        System.out.println(format(
+                        "Batch finished: jobs=%d, done=%d, mean fitness=%1.4f, evaluations=%d, time=%1.1fs, summary='%s'.",
+                        _jobs.size(), done, fitness, _jobs.stream().mapToLong(job -> job.evaluations).sum(), seconds, file));
+    }
+
+    /**
+     * Create a batch runner for the given directory of images or manifest
+     * file.
+     *
+     * @param generations the generation count of jobs which don't define one
+     * @param targetFitness the target fitness of jobs which don't define one
+     * @param timeBudget the time budget of every job, zero disables it
+     * @param stagnation the number of generations without improvement after
+     *        which a job ends, zero disables it
+     * @param concurrentJobs the maximal number of concurrently running jobs
+     * @param formats the formats the best chromosome of a job is written in
+     */
+    static BatchRunner of(
+                    final EngineParam param,
+                    final Path source,
+                    final File outputDir,
+                    final long generations,
+                    final double targetFitness,
+                    final Duration timeBudget,
+                    final int stagnation,
+                    final int concurrentJobs,
+                    final Set<SnapshotFormat> formats)
+                    throws IOException
+    {
+        final List<Job> jobs = Files.isDirectory(source)
+                        ? images(source, generations, targetFitness)
+                        : manifest(source, generations, targetFitness);
+
+        // The writer must not drop the result of a job.
+        final SnapshotWriter writer = new SnapshotWriter(Math.max(1, jobs.size()), formats, false);
+        return new BatchRunner(param, jobs, outputDir, timeBudget, stagnation, Math.max(1, concurrentJobs), writer);
+    }
+
+    private static List<Job> images(final Path dir, final long generations, final double targetFitness) throws IOException {
+        final List<Path> images;
+        try (Stream<Path> files = Files.list(dir)) {
+            images = files
+                            .filter(Files::isRegularFile)
+                            .filter(BatchRunner::isImage)
+                            .sorted()
+                            .collect(Collectors.toList());
+        }
+
+        final Set<String> names = new HashSet<>();
+        final List<Job> jobs = new ArrayList<>();
+        for (Path image : images) {
+            jobs.add(new Job(image, name(image, names), generations, targetFitness));
+        }
+
+        return jobs;
+    }
+
+    private static boolean isImage(final Path file) {
+        final String name = file.getFileName().toString();
+        final int index = name.lastIndexOf('.');
+        return index > 0 && ImageIO.getImageReadersBySuffix(name.substring(index + 1)).hasNext();
+    }
+
+    private static List<Job> manifest(final Path manifest, final long generations, final double targetFitness) throws IOException {
+        final Path dir = manifest.toAbsolutePath().getParent();
+        final Set<String> names = new HashSet<>();
+        final List<Job> jobs = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            final String[] fields = trimmed.split("\\s+");
+            final Path image = dir.resolve(fields[0]);
+            jobs.add(new Job(
+                            image,
+                            name(image, names),
+                            fields.length > 1 ? Long.parseLong(fields[1]) : generations,
+                            fields.length > 2 ? Double.parseDouble(fields[2]) : targetFitness));
+        }
+
+        return jobs;
+    }
+
+    /**
+     * Return the name of the job of the given image, which isn't contained
+     * in the given names of the previous jobs, and add it to them. The
+     * outputs and the metrics of the jobs are identified by their names.
+     */
+    private static String name(final Path image, final Set<String> names) {
+        final String file = image.getFileName().toString();
+        final int index = file.lastIndexOf('.');
+        final String base = index > 0 ? file.substring(0, index) : file;
+
+        String name = base;
+        for (int i = 2; !names.add(name); ++i) {
+            name = base + "-" + i;
+        }
+        return name;
+    }
+
+    /**
+     * A single image of the batch, together with its result.
+     */
+    static final class Job {
+        final Path image;
+        final String name;
+        final long generations;
+        final double targetFitness;
+
+        volatile Phenotype<PolygonGene, Double> best;
+        volatile long generation;
+        volatile String status = "pending";
+        volatile String reason;
+        volatile long evaluations;
+        volatile double seconds;
+
+        Job(final Path image, final String name, final long generations, final double targetFitness) {
+            this.image = image;
+            this.name = name;
+            this.generations = generations;
+            this.targetFitness = targetFitness;
+        }
+
+        long getGeneration() {
+            return generation;
+        }
+
+        double getFitness() {
+            final Phenotype<PolygonGene, Double> best = this.best;
+            return best != null ? best.getFitness() : Double.NaN;
+        }
+
+        @Override
+        public String toString() {
+            return format("Job '%s': %s%s, generation=%d, fitness=%1.4f, time=%1.1fs.",
+                            name, status, reason != null ? " (" + reason + ")" : "",
+                            getGeneration(), getFitness(), seconds);
+        }
+    }
+
+}
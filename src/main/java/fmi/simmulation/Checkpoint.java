@@ -0,0 +1,211 @@
+package fmi.simmulation;
+
+import io.jenetics.Genotype;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.RandomRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The persisted state of an evolution: the population, the generation to
+ * continue with, the level of the resolution schedule and a seed for the
+ * random engine.
+ *
+ * The binary format is big endian:
+ * <pre>
+ * int   magic ("EICP")
+ * int   version
+ * long  generation
+ * int   resolution level
+ * long  random seed
+ * int   population size
+ * int   polygon count
+ * int   polygon length
+ * float polygon data, population size*polygon count*(4 + 2*polygon length)
+ * </pre>
+ */
+final class Checkpoint {
+
+    private static final int MAGIC = 0x45494350;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2*Integer.BYTES + 2*Long.BYTES + 4*Integer.BYTES;
+
+    private final long _generation;
+    private final int _level;
+    private final long _seed;
+    private final int _polygonCount;
+    private final int _polygonLength;
+    private final ISeq<Genotype<PolygonGene>> _population;
+
+    private Checkpoint(
+                    final long generation,
+                    final int level,
+                    final long seed,
+                    final int polygonCount,
+                    final int polygonLength,
+                    final ISeq<Genotype<PolygonGene>> population)
+    {
+        _generation = generation;
+        _level = level;
+        _seed = seed;
+        _polygonCount = polygonCount;
+        _polygonLength = polygonLength;
+        _population = requireNonNull(population);
+    }
+
+    /**
+     * Return the generation the evolution continues with.
+     */
+    long getGeneration() {
+        return _generation;
+    }
+
+    /**
+     * Return the level of the resolution schedule.
+     */
+    int getLevel() {
+        return _level;
+    }
+
+    /**
+     * Return the seed the random engine is reseeded with on resume. The state
+     * of the thread local random engines can't be captured, so a seed is
+     * drawn from them when the checkpoint is created.
+     */
+    long getSeed() {
+        return _seed;
+    }
+
+    int getPolygonCount() {
+        return _polygonCount;
+    }
+
+    int getPolygonLength() {
+        return _polygonLength;
+    }
+
+    ISeq<Genotype<PolygonGene>> getPopulation() {
+        return _population;
+    }
+
+    /**
+     * Return the size of the checkpoint file in bytes.
+     */
+    long getSize() {
+        return HEADER_SIZE +
+                        (long)_population.size()*_polygonCount*Polygon.size(_polygonLength)*Float.BYTES;
+    }
+
+    /**
+     * Write the checkpoint to a temporary file next to the given one, which
+     * then atomically replaces the given file.
+     */
+    void write(final Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int)getSize());
+        buffer.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(_generation)
+                        .putInt(_level)
+                        .putLong(_seed)
+                        .putInt(_population.size())
+                        .putInt(_polygonCount)
+                        .putInt(_polygonLength);
+
+        final FloatBuffer data = buffer.asFloatBuffer();
+        for (Genotype<PolygonGene> genotype : _population) {
+            data.put(((PolygonChromosome)genotype.getChromosome()).toArray());
+        }
+        buffer.position(buffer.limit());
+        buffer.flip();
+
+        final Path dir = path.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read a checkpoint written by {@link #write(Path)}.
+     */
+    static Checkpoint read(final Path path) throws IOException {
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(format("Invalid checkpoint size of '%s': %d bytes.", path, channel.size()));
+            }
+
+            buffer = ByteBuffer.allocate((int)channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+        }
+
+        final int magic = buffer.getInt();
+        final int version = buffer.getInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException(format("'%s' is not a checkpoint of version %d.", path, VERSION));
+        }
+
+        final long generation = buffer.getLong();
+        final int level = buffer.getInt();
+        final long seed = buffer.getLong();
+        final int populationSize = buffer.getInt();
+        final int polygonCount = buffer.getInt();
+        final int polygonLength = buffer.getInt();
+
+        final int floats = polygonCount*Polygon.size(polygonLength);
+        if (populationSize <= 0 || polygonCount <= 0 || polygonLength <= 0 ||
+                        buffer.remaining() != (long)populationSize*floats*Float.BYTES)
+        {
+            throw new IOException(format("Corrupt checkpoint '%s'.", path));
+        }
+
+        final FloatBuffer data = buffer.asFloatBuffer();
+        final MSeq<Genotype<PolygonGene>> population = MSeq.ofLength(populationSize);
+        for (int i = 0; i < populationSize; ++i) {
+            final float[] chromosome = new float[floats];
+            data.get(chromosome);
+            population.set(i, Genotype.of(PolygonChromosome.of(chromosome, polygonCount, polygonLength)));
+        }
+
+        return new Checkpoint(generation, level, seed, polygonCount, polygonLength, population.toISeq());
+    }
+
+    /**
+     * Create a checkpoint of the given population.
+     *
+     * @param generation the generation the evolution continues with
+     * @param level the level of the resolution schedule
+     */
+    static Checkpoint of(final ISeq<Genotype<PolygonGene>> population, final long generation, final int level) {
+        final PolygonChromosome chromosome = (PolygonChromosome)population.get(0).getChromosome();
+        return new Checkpoint(
+                        generation,
+                        level,
+                        RandomRegistry.getRandom().nextLong(),
+                        chromosome.length(),
+                        chromosome.getGene().getAllele().length(),
+                        population);
+    }
+
+}
@@ -6,8 +6,11 @@ import java.io.InputStream;
 import java.util.Properties;
 import java.util.prefs.Preferences;
 
+import static java.lang.Boolean.parseBoolean;
 import static java.lang.Float.parseFloat;
 import static java.lang.Integer.parseInt;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
 
 /**
  * Collects the configurable GA engine parameters.
@@ -36,6 +39,34 @@ final class EngineParam {
     public static final Dimension MAX_REF_IMAGE_SIZE =
                     new Dimension(Short.MAX_VALUE, Short.MAX_VALUE);
 
+    public static final Renderer DEFAULT_RENDERER = Renderer.JAVA2D;
+
+    public static final boolean DEFAULT_INCREMENTAL_RENDER = false;
+
+    public static final int DEFAULT_PREFIX_CACHE_SIZE = 0;
+
+    public static final String DEFAULT_RESOLUTION_SCALES = "1";
+
+    public static final int DEFAULT_RESOLUTION_PLATEAU = 50;
+
+    public static final int DEFAULT_FITNESS_SAMPLE_PIXELS = 0;
+
+    public static final int DEFAULT_FITNESS_RESCORE_INTERVAL = 50;
+
+    public static final EvaluationExecutor DEFAULT_EVALUATION_EXECUTOR = EvaluationExecutor.COMMON;
+
+    public static final int DEFAULT_EVALUATION_THREADS = 0;
+
+    public static final int DEFAULT_FITNESS_TILES = 1;
+
+    public static final int DEFAULT_ISLAND_COUNT = 1;
+
+    public static final int DEFAULT_MIGRATION_INTERVAL = 50;
+
+    public static final int DEFAULT_MIGRATION_SIZE = 2;
+
+    public static final int DEFAULT_FITNESS_CACHE_SIZE = 0;
+
     public static final EngineParam DEFAULT;
 
     // Load the default properties from the resource file.
@@ -60,6 +91,20 @@ final class EngineParam {
     private static final String POLYGON_COUNT_KEY = "polygon_count";
     private static final String REFERENCE_IMAGE_WIDTH_KEY = "reference_image_width";
     private static final String REFERENCE_IMAGE_HEIGHT_KEY = "reference_image_height";
+    private static final String RENDERER_KEY = "renderer";
+    private static final String INCREMENTAL_RENDER_KEY = "incremental_render";
+    private static final String PREFIX_CACHE_SIZE_KEY = "prefix_cache_size";
+    private static final String RESOLUTION_SCALES_KEY = "resolution_scales";
+    private static final String RESOLUTION_PLATEAU_KEY = "resolution_plateau";
+    private static final String FITNESS_SAMPLE_PIXELS_KEY = "fitness_sample_pixels";
+    private static final String FITNESS_RESCORE_INTERVAL_KEY = "fitness_rescore_interval";
+    private static final String EVALUATION_EXECUTOR_KEY = "evaluation_executor";
+    private static final String EVALUATION_THREADS_KEY = "evaluation_threads";
+    private static final String FITNESS_TILES_KEY = "fitness_tiles";
+    private static final String ISLAND_COUNT_KEY = "island_count";
+    private static final String MIGRATION_INTERVAL_KEY = "migration_interval";
+    private static final String MIGRATION_SIZE_KEY = "migration_size";
+    private static final String FITNESS_CACHE_SIZE_KEY = "fitness_cache_size";
 
     private final int _populationSize;
     private final int _tournamentSize;
@@ -69,23 +114,43 @@ final class EngineParam {
     private final int _polygonLength;
     private final int _polygonCount;
     private final Dimension _referenceImageSize;
-
-    private EngineParam(
-                    final int populationSize,
-                    final int tournamentSize,
-                    final float mutationRate,
-                    final float mutationMultitude,
-                    final int polygonLength,
-                    final int polygonCount,
-                    final Dimension referenceImageSize
-    ) {
-        _populationSize = populationSize;
-        _tournamentSize = tournamentSize;
-        _mutationRate = mutationRate;
-        _mutationMultitude = mutationMultitude;
-        _polygonLength = polygonLength;
-        _polygonCount = polygonCount;
-        _referenceImageSize = (Dimension)referenceImageSize.clone();
+    private final Renderer _renderer;
+    private final boolean _incrementalRender;
+    private final int _prefixCacheSize;
+    private final float[] _resolutionScales;
+    private final int _resolutionPlateau;
+    private final int _fitnessSamplePixels;
+    private final int _fitnessRescoreInterval;
+    private final EvaluationExecutor _evaluationExecutor;
+    private final int _evaluationThreads;
+    private final int _fitnessTiles;
+    private final int _islandCount;
+    private final int _migrationInterval;
+    private final int _migrationSize;
+    private final int _fitnessCacheSize;
+
+    private EngineParam(final Builder builder) {
+        _populationSize = builder._populationSize;
+        _tournamentSize = builder._tournamentSize;
+        _mutationRate = builder._mutationRate;
+        _mutationMultitude = builder._mutationMultitude;
+        _polygonLength = builder._polygonLength;
+        _polygonCount = builder._polygonCount;
+        _referenceImageSize = (Dimension)builder._referenceImageSize.clone();
+        _renderer = builder._renderer;
+        _incrementalRender = builder._incrementalRender;
+        _prefixCacheSize = builder._prefixCacheSize;
+        _resolutionScales = checkScales(builder._resolutionScales.clone());
+        _resolutionPlateau = builder._resolutionPlateau;
+        _fitnessSamplePixels = builder._fitnessSamplePixels;
+        _fitnessRescoreInterval = builder._fitnessRescoreInterval;
+        _evaluationExecutor = builder._evaluationExecutor;
+        _evaluationThreads = builder._evaluationThreads;
+        _fitnessTiles = builder._fitnessTiles;
+        _islandCount = builder._islandCount;
+        _migrationInterval = builder._migrationInterval;
+        _migrationSize = builder._migrationSize;
+        _fitnessCacheSize = builder._fitnessCacheSize;
     }
 
     public int getPopulationSize() {
@@ -116,6 +181,119 @@ final class EngineParam {
         return (Dimension)_referenceImageSize.clone();
     }
 
+    public Renderer getRenderer() {
+        return _renderer;
+    }
+
+    /**
+     * Return {@code true} if the {@link Renderer#SOFTWARE} renderer only
+     * re-renders the region of a chromosome which differs from the cached
+     * rendering of its parent.
+     */
+    public boolean isIncrementalRender() {
+        return _incrementalRender;
+    }
+
+    /**
+     * Return the maximal number of partially rendered canvases, which are
+     * cached by the {@link Renderer#SOFTWARE} renderer. Zero disables the
+     * cache.
+     */
+    public int getPrefixCacheSize() {
+        return _prefixCacheSize;
+    }
+
+    /**
+     * Return the scales of the reference image size, the evolution runs
+     * through in ascending order. The evolution starts with a (cheap)
+     * downscaled reference image and switches to the next resolution as soon
+     * as the best fitness reaches a plateau. The last scale is used until the
+     * evolution ends.
+     */
+    public float[] getResolutionScales() {
+        return _resolutionScales.clone();
+    }
+
+    /**
+     * Return the number of generations without improvement of the best
+     * fitness, after which the evolution switches to the next resolution.
+     */
+    public int getResolutionPlateau() {
+        return _resolutionPlateau;
+    }
+
+    /**
+     * Return the number of pixels the fitness is estimated from. The pixels
+     * are taken from evenly spread rows of the reference image. Zero, or a
+     * value not smaller than the reference image, selects the exact fitness.
+     */
+    public int getFitnessSamplePixels() {
+        return _fitnessSamplePixels;
+    }
+
+    /**
+     * Return the number of generations after which, for sampled fitness
+     * values, the best individual is scored exactly and the sampled rows are
+     * rotated.
+     */
+    public int getFitnessRescoreInterval() {
+        return _fitnessRescoreInterval;
+    }
+
+    public EvaluationExecutor getEvaluationExecutor() {
+        return _evaluationExecutor;
+    }
+
+    /**
+     * Return the number of fitness evaluation threads. Zero selects the
+     * number of available processors.
+     */
+    public int getEvaluationThreads() {
+        return _evaluationThreads;
+    }
+
+    /**
+     * Return the number of horizontal tiles a single fitness evaluation of
+     * the {@link Renderer#FUSED} renderer is split into. The tiles are
+     * rendered and scored concurrently, which keeps all cores busy for small
+     * populations and large reference images. One disables the tiling.
+     */
+    public int getFitnessTiles() {
+        return _fitnessTiles;
+    }
+
+    /**
+     * Return the number of islands, each evolving its own population on its
+     * own thread. A value of one disables the island model.
+     */
+    public int getIslandCount() {
+        return _islandCount;
+    }
+
+    /**
+     * Return the number of generations between two migrations of the island
+     * model.
+     */
+    public int getMigrationInterval() {
+        return _migrationInterval;
+    }
+
+    /**
+     * Return the number of best individuals an island sends to its neighbour
+     * on every migration.
+     */
+    public int getMigrationSize() {
+        return _migrationSize;
+    }
+
+    /**
+     * Return the maximal number of fitness values which are cached by the
+     * content of their chromosome. Zero disables the cache.
+     */
+    public int getFitnessCacheSize() {
+        return _fitnessCacheSize;
+    }
+
     @Override
     public String toString() {
         return "Population size: " + _populationSize + "\n" +
@@ -125,7 +303,21 @@ final class EngineParam {
                         "Polygon length: " + _polygonLength + "\n" +
                         "Polygon count: " + _polygonCount + "\n" +
                         "Reference image size: " + _referenceImageSize.width +
-                        "x" + _referenceImageSize.height;
+                        "x" + _referenceImageSize.height + "\n" +
+                        "Renderer: " + _renderer.key() + "\n" +
+                        "Incremental render: " + _incrementalRender + "\n" +
+                        "Prefix cache size: " + _prefixCacheSize + "\n" +
+                        "Resolution scales: " + formatScales(_resolutionScales) + "\n" +
+                        "Resolution plateau: " + _resolutionPlateau + "\n" +
+                        "Fitness sample pixels: " + _fitnessSamplePixels + "\n" +
+                        "Fitness rescore interval: " + _fitnessRescoreInterval + "\n" +
+                        "Evaluation executor: " + _evaluationExecutor.key() + "\n" +
+                        "Evaluation threads: " + _evaluationThreads + "\n" +
+                        "Fitness tiles: " + _fitnessTiles + "\n" +
+                        "Island count: " + _islandCount + "\n" +
+                        "Migration interval: " + _migrationInterval + "\n" +
+                        "Migration size: " + _migrationSize + "\n" +
+                        "Fitness cache size: " + _fitnessCacheSize;
     }
 
     public void store(final Preferences prefs) {
@@ -137,21 +329,48 @@ final class EngineParam {
         prefs.putInt(POLYGON_COUNT_KEY, _polygonCount);
         prefs.putInt(REFERENCE_IMAGE_WIDTH_KEY, _referenceImageSize.width);
         prefs.putInt(REFERENCE_IMAGE_HEIGHT_KEY, _referenceImageSize.height);
+        prefs.put(RENDERER_KEY, _renderer.key());
+        prefs.putBoolean(INCREMENTAL_RENDER_KEY, _incrementalRender);
+        prefs.putInt(PREFIX_CACHE_SIZE_KEY, _prefixCacheSize);
+        prefs.put(RESOLUTION_SCALES_KEY, formatScales(_resolutionScales));
+        prefs.putInt(RESOLUTION_PLATEAU_KEY, _resolutionPlateau);
+        prefs.putInt(FITNESS_SAMPLE_PIXELS_KEY, _fitnessSamplePixels);
+        prefs.putInt(FITNESS_RESCORE_INTERVAL_KEY, _fitnessRescoreInterval);
+        prefs.put(EVALUATION_EXECUTOR_KEY, _evaluationExecutor.key());
+        prefs.putInt(EVALUATION_THREADS_KEY, _evaluationThreads);
+        prefs.putInt(FITNESS_TILES_KEY, _fitnessTiles);
+        prefs.putInt(ISLAND_COUNT_KEY, _islandCount);
+        prefs.putInt(MIGRATION_INTERVAL_KEY, _migrationInterval);
+        prefs.putInt(MIGRATION_SIZE_KEY, _migrationSize);
+        prefs.putInt(FITNESS_CACHE_SIZE_KEY, _fitnessCacheSize);
     }
 
     public static EngineParam load(final Preferences prefs) {
-        return of(
-                        prefs.getInt(POPULATION_SIZE_KEY, DEFAULT._populationSize),
-                        prefs.getInt(TOURNAMENT_SIZE_KEY, DEFAULT._tournamentSize),
-                        prefs.getFloat(MUTATION_RATE_KEY, DEFAULT._mutationRate),
-                        prefs.getFloat(MUTATION_MULTITUDE_KEY, DEFAULT._mutationMultitude),
-                        prefs.getInt(POLYGON_LENGTH_KEY, DEFAULT._polygonLength),
-                        prefs.getInt(POLYGON_COUNT_KEY, DEFAULT._polygonCount),
-                        new Dimension(
+        return builder()
+                        .populationSize(prefs.getInt(POPULATION_SIZE_KEY, DEFAULT._populationSize))
+                        .tournamentSize(prefs.getInt(TOURNAMENT_SIZE_KEY, DEFAULT._tournamentSize))
+                        .mutationRate(prefs.getFloat(MUTATION_RATE_KEY, DEFAULT._mutationRate))
+                        .mutationMultitude(prefs.getFloat(MUTATION_MULTITUDE_KEY, DEFAULT._mutationMultitude))
+                        .polygonLength(prefs.getInt(POLYGON_LENGTH_KEY, DEFAULT._polygonLength))
+                        .polygonCount(prefs.getInt(POLYGON_COUNT_KEY, DEFAULT._polygonCount))
+                        .referenceImageSize(new Dimension(
                                         prefs.getInt(REFERENCE_IMAGE_WIDTH_KEY, DEFAULT._referenceImageSize.width),
-                                        prefs.getInt(REFERENCE_IMAGE_HEIGHT_KEY, DEFAULT._referenceImageSize.height)
-                        )
-        );
+                                        prefs.getInt(REFERENCE_IMAGE_HEIGHT_KEY, DEFAULT._referenceImageSize.height)))
+                        .renderer(Renderer.parse(prefs.get(RENDERER_KEY, DEFAULT._renderer.key())))
+                        .incrementalRender(prefs.getBoolean(INCREMENTAL_RENDER_KEY, DEFAULT._incrementalRender))
+                        .prefixCacheSize(prefs.getInt(PREFIX_CACHE_SIZE_KEY, DEFAULT._prefixCacheSize))
+                        .resolutionScales(parseScales(prefs.get(RESOLUTION_SCALES_KEY, formatScales(DEFAULT._resolutionScales))))
+                        .resolutionPlateau(prefs.getInt(RESOLUTION_PLATEAU_KEY, DEFAULT._resolutionPlateau))
+                        .fitnessSamplePixels(prefs.getInt(FITNESS_SAMPLE_PIXELS_KEY, DEFAULT._fitnessSamplePixels))
+                        .fitnessRescoreInterval(prefs.getInt(FITNESS_RESCORE_INTERVAL_KEY, DEFAULT._fitnessRescoreInterval))
+                        .evaluationExecutor(EvaluationExecutor.parse(prefs.get(EVALUATION_EXECUTOR_KEY, DEFAULT._evaluationExecutor.key())))
+                        .evaluationThreads(prefs.getInt(EVALUATION_THREADS_KEY, DEFAULT._evaluationThreads))
+                        .fitnessTiles(prefs.getInt(FITNESS_TILES_KEY, DEFAULT._fitnessTiles))
+                        .islandCount(prefs.getInt(ISLAND_COUNT_KEY, DEFAULT._islandCount))
+                        .migrationInterval(prefs.getInt(MIGRATION_INTERVAL_KEY, DEFAULT._migrationInterval))
+                        .migrationSize(prefs.getInt(MIGRATION_SIZE_KEY, DEFAULT._migrationSize))
+                        .fitnessCacheSize(prefs.getInt(FITNESS_CACHE_SIZE_KEY, DEFAULT._fitnessCacheSize))
+                        .build();
     }
 
     public void store(final Properties props) {
@@ -163,27 +382,257 @@ final class EngineParam {
         props.put(POLYGON_COUNT_KEY, _polygonCount);
         props.put(REFERENCE_IMAGE_WIDTH_KEY, _referenceImageSize.width);
         props.put(REFERENCE_IMAGE_HEIGHT_KEY, _referenceImageSize.height);
+        props.put(RENDERER_KEY, _renderer.key());
+        props.put(INCREMENTAL_RENDER_KEY, _incrementalRender);
+        props.put(PREFIX_CACHE_SIZE_KEY, _prefixCacheSize);
+        props.put(RESOLUTION_SCALES_KEY, formatScales(_resolutionScales));
+        props.put(RESOLUTION_PLATEAU_KEY, _resolutionPlateau);
+        props.put(FITNESS_SAMPLE_PIXELS_KEY, _fitnessSamplePixels);
+        props.put(FITNESS_RESCORE_INTERVAL_KEY, _fitnessRescoreInterval);
+        props.put(EVALUATION_EXECUTOR_KEY, _evaluationExecutor.key());
+        props.put(EVALUATION_THREADS_KEY, _evaluationThreads);
+        props.put(FITNESS_TILES_KEY, _fitnessTiles);
+        props.put(ISLAND_COUNT_KEY, _islandCount);
+        props.put(MIGRATION_INTERVAL_KEY, _migrationInterval);
+        props.put(MIGRATION_SIZE_KEY, _migrationSize);
+        props.put(FITNESS_CACHE_SIZE_KEY, _fitnessCacheSize);
     }
 
     public static EngineParam load(final Properties props) {
-        return of(
-                        parseInt(props.getProperty(POPULATION_SIZE_KEY)),
-                        parseInt(props.getProperty(TOURNAMENT_SIZE_KEY)),
-                        parseFloat(props.getProperty(MUTATION_RATE_KEY)),
-                        parseFloat(props.getProperty(MUTATION_MULTITUDE_KEY)),
-                        parseInt(props.getProperty(POLYGON_LENGTH_KEY)),
-                        parseInt(props.getProperty(POLYGON_COUNT_KEY)),
-                        new Dimension(
+        return builder()
+                        .populationSize(parseInt(props.getProperty(POPULATION_SIZE_KEY)))
+                        .tournamentSize(parseInt(props.getProperty(TOURNAMENT_SIZE_KEY)))
+                        .mutationRate(parseFloat(props.getProperty(MUTATION_RATE_KEY)))
+                        .mutationMultitude(parseFloat(props.getProperty(MUTATION_MULTITUDE_KEY)))
+                        .polygonLength(parseInt(props.getProperty(POLYGON_LENGTH_KEY)))
+                        .polygonCount(parseInt(props.getProperty(POLYGON_COUNT_KEY)))
+                        .referenceImageSize(new Dimension(
                                         parseInt(props.getProperty(REFERENCE_IMAGE_WIDTH_KEY)),
-                                        parseInt(props.getProperty(REFERENCE_IMAGE_HEIGHT_KEY))
-                        )
-        );
+                                        parseInt(props.getProperty(REFERENCE_IMAGE_HEIGHT_KEY))))
+                        .renderer(Renderer.parse(props.getProperty(RENDERER_KEY, DEFAULT_RENDERER.key())))
+                        .incrementalRender(parseBoolean(props.getProperty(INCREMENTAL_RENDER_KEY, String.valueOf(DEFAULT_INCREMENTAL_RENDER))))
+                        .prefixCacheSize(parseInt(props.getProperty(PREFIX_CACHE_SIZE_KEY, String.valueOf(DEFAULT_PREFIX_CACHE_SIZE))))
+                        .resolutionScales(parseScales(props.getProperty(RESOLUTION_SCALES_KEY, DEFAULT_RESOLUTION_SCALES)))
+                        .resolutionPlateau(parseInt(props.getProperty(RESOLUTION_PLATEAU_KEY, String.valueOf(DEFAULT_RESOLUTION_PLATEAU))))
+                        .fitnessSamplePixels(parseInt(props.getProperty(FITNESS_SAMPLE_PIXELS_KEY, String.valueOf(DEFAULT_FITNESS_SAMPLE_PIXELS))))
+                        .fitnessRescoreInterval(parseInt(props.getProperty(FITNESS_RESCORE_INTERVAL_KEY, String.valueOf(DEFAULT_FITNESS_RESCORE_INTERVAL))))
+                        .evaluationExecutor(EvaluationExecutor.parse(props.getProperty(EVALUATION_EXECUTOR_KEY, DEFAULT_EVALUATION_EXECUTOR.key())))
+                        .evaluationThreads(parseInt(props.getProperty(EVALUATION_THREADS_KEY, String.valueOf(DEFAULT_EVALUATION_THREADS))))
+                        .fitnessTiles(parseInt(props.getProperty(FITNESS_TILES_KEY, String.valueOf(DEFAULT_FITNESS_TILES))))
+                        .islandCount(parseInt(props.getProperty(ISLAND_COUNT_KEY, String.valueOf(DEFAULT_ISLAND_COUNT))))
+                        .migrationInterval(parseInt(props.getProperty(MIGRATION_INTERVAL_KEY, String.valueOf(DEFAULT_MIGRATION_INTERVAL))))
+                        .migrationSize(parseInt(props.getProperty(MIGRATION_SIZE_KEY, String.valueOf(DEFAULT_MIGRATION_SIZE))))
+                        .fitnessCacheSize(parseInt(props.getProperty(FITNESS_CACHE_SIZE_KEY, String.valueOf(DEFAULT_FITNESS_CACHE_SIZE))))
+                        .build();
+    }
+
+    /**
+     * Parse the comma separated resolution scales.
+     *
+     * @throws IllegalArgumentException if the value isn't a non-empty list of
+     *         ascending scales within {@code (0, 1]}
+     */
+    private static float[] parseScales(final String value) {
+        if (value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Resolution scales must not be empty.");
+        }
+
+        final String[] parts = value.split(",");
+        final float[] scales = new float[parts.length];
+        for (int i = 0; i < parts.length; ++i) {
+            try {
+                scales[i] = parseFloat(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(format("Invalid resolution scales: '%s'", value), e);
+            }
+        }
+        return checkScales(scales);
+    }
+
+    private static float[] checkScales(final float[] scales) {
+        if (scales.length == 0) {
+            throw new IllegalArgumentException("Resolution scales must not be empty.");
+        }
+        for (int i = 0; i < scales.length; ++i) {
+            if (!(scales[i] > 0 && scales[i] <= 1)) {
+                throw new IllegalArgumentException(format(
+                                "Resolution scale must be within (0, 1]: %s", formatScales(scales)));
+            }
+            if (i > 0 && scales[i] <= scales[i - 1]) {
+                throw new IllegalArgumentException(format(
+                                "Resolution scales must be ascending: %s", formatScales(scales)));
+            }
+        }
+        return scales;
+    }
+
+    private static String formatScales(final float[] scales) {
+        final StringBuilder out = new StringBuilder();
+        for (float scale : scales) {
+            out.append(out.length() == 0 ? "" : ",").append(scale);
+        }
+        return out.toString();
     }
 
     public static EngineParam of(final int populationSize, final int tournamentSize, final float mutationRate, final float mutationChange,
                                  final int polygonLength, final int polygonCount, final Dimension referenceImageSize) {
 
-        return new EngineParam(populationSize, tournamentSize, mutationRate, mutationChange, polygonLength, polygonCount, referenceImageSize);
+        return builder()
+                        .populationSize(populationSize)
+                        .tournamentSize(tournamentSize)
+                        .mutationRate(mutationRate)
+                        .mutationMultitude(mutationChange)
+                        .polygonLength(polygonLength)
+                        .polygonCount(polygonCount)
+                        .referenceImageSize(referenceImageSize)
+                        .build();
+    }
+
+    /**
+     * Return a builder, whose optional parameters are set to their defaults.
+     */
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds engine parameters. The parameters without a {@code DEFAULT_}
+     * constant must be set.
+     */
+    static final class Builder {
+        private int _populationSize;
+        private int _tournamentSize;
+        private float _mutationRate;
+        private float _mutationMultitude;
+        private int _polygonLength;
+        private int _polygonCount;
+        private Dimension _referenceImageSize;
+        private Renderer _renderer = DEFAULT_RENDERER;
+        private boolean _incrementalRender = DEFAULT_INCREMENTAL_RENDER;
+        private int _prefixCacheSize = DEFAULT_PREFIX_CACHE_SIZE;
+        private float[] _resolutionScales = parseScales(DEFAULT_RESOLUTION_SCALES);
+        private int _resolutionPlateau = DEFAULT_RESOLUTION_PLATEAU;
+        private int _fitnessSamplePixels = DEFAULT_FITNESS_SAMPLE_PIXELS;
+        private int _fitnessRescoreInterval = DEFAULT_FITNESS_RESCORE_INTERVAL;
+        private EvaluationExecutor _evaluationExecutor = DEFAULT_EVALUATION_EXECUTOR;
+        private int _evaluationThreads = DEFAULT_EVALUATION_THREADS;
+        private int _fitnessTiles = DEFAULT_FITNESS_TILES;
+        private int _islandCount = DEFAULT_ISLAND_COUNT;
+        private int _migrationInterval = DEFAULT_MIGRATION_INTERVAL;
+        private int _migrationSize = DEFAULT_MIGRATION_SIZE;
+        private int _fitnessCacheSize = DEFAULT_FITNESS_CACHE_SIZE;
+
+        private Builder() {
+        }
+
+        Builder populationSize(final int populationSize) {
+            _populationSize = populationSize;
+            return this;
+        }
+
+        Builder tournamentSize(final int tournamentSize) {
+            _tournamentSize = tournamentSize;
+            return this;
+        }
+
+        Builder mutationRate(final float mutationRate) {
+            _mutationRate = mutationRate;
+            return this;
+        }
+
+        Builder mutationMultitude(final float mutationMultitude) {
+            _mutationMultitude = mutationMultitude;
+            return this;
+        }
+
+        Builder polygonLength(final int polygonLength) {
+            _polygonLength = polygonLength;
+            return this;
+        }
+
+        Builder polygonCount(final int polygonCount) {
+            _polygonCount = polygonCount;
+            return this;
+        }
+
+        Builder referenceImageSize(final Dimension referenceImageSize) {
+            _referenceImageSize = requireNonNull(referenceImageSize);
+            return this;
+        }
+
+        Builder renderer(final Renderer renderer) {
+            _renderer = requireNonNull(renderer);
+            return this;
+        }
+
+        Builder incrementalRender(final boolean incrementalRender) {
+            _incrementalRender = incrementalRender;
+            return this;
+        }
+
+        Builder prefixCacheSize(final int prefixCacheSize) {
+            _prefixCacheSize = prefixCacheSize;
+            return this;
+        }
+
+        Builder resolutionScales(final float[] resolutionScales) {
+            _resolutionScales = requireNonNull(resolutionScales);
+            return this;
+        }
+
+        Builder resolutionPlateau(final int resolutionPlateau) {
+            _resolutionPlateau = resolutionPlateau;
+            return this;
+        }
+
+        Builder fitnessSamplePixels(final int fitnessSamplePixels) {
+            _fitnessSamplePixels = fitnessSamplePixels;
+            return this;
+        }
+
+        Builder fitnessRescoreInterval(final int fitnessRescoreInterval) {
+            _fitnessRescoreInterval = fitnessRescoreInterval;
+            return this;
+        }
+
+        Builder evaluationExecutor(final EvaluationExecutor evaluationExecutor) {
+            _evaluationExecutor = requireNonNull(evaluationExecutor);
+            return this;
+        }
+
+        Builder evaluationThreads(final int evaluationThreads) {
+            _evaluationThreads = evaluationThreads;
+            return this;
+        }
+
+        Builder fitnessTiles(final int fitnessTiles) {
+            _fitnessTiles = fitnessTiles;
+            return this;
+        }
+
+        Builder islandCount(final int islandCount) {
+            _islandCount = islandCount;
+            return this;
+        }
+
+        Builder migrationInterval(final int migrationInterval) {
+            _migrationInterval = migrationInterval;
+            return this;
+        }
+
+        Builder migrationSize(final int migrationSize) {
+            _migrationSize = migrationSize;
+            return this;
+        }
+
+        Builder fitnessCacheSize(final int fitnessCacheSize) {
+            _fitnessCacheSize = fitnessCacheSize;
+            return this;
+        }
+
+        EngineParam build() {
+            return new EngineParam(this);
+        }
     }
 
 }
@@ -0,0 +1,124 @@
+package fmi.simmulation;
+
+import io.jenetics.util.RandomRegistry;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The available executors for evaluating the fitness of the population.
+ */
+enum EvaluationExecutor {
+
+    /**
+     * The Jenetics default, the common {@code ForkJoinPool}.
+     */
+    COMMON,
+
+    /**
+     * A fixed size thread pool. Jenetics splits the population into
+     * contiguous slices, which are scored as one task each, so the threads
+     * work on batches of individuals and don't contend on the task queue for
+     * every single evaluation.
+     */
+    FIXED,
+
+    /**
+     * A dedicated {@code ForkJoinPool} with the given parallelism, which
+     * recursively splits the population.
+     */
+    FORK_JOIN,
+
+    /**
+     * Evaluates the population in the evolution thread.
+     */
+    SERIAL;
+
+    /**
+     * Return the property value of this executor.
+     */
+    String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Create a new executor of this type.
+     *
+     * @param threads the number of evaluation threads, a value smaller than
+     *        one selects the number of available processors
+     * @param random the random engines the threads of the executor make
+     *        current in the {@code RandomRegistry}, instead of the global one;
+     *        not used by the common pool and the serial executor
+     */
+    Executor create(final int threads, final ThreadLocal<Random> random) {
+        final int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        switch (this) {
+            case FIXED: return Executors.newFixedThreadPool(parallelism, new EvaluationThreadFactory(random));
+            case FORK_JOIN: return new ForkJoinPool(parallelism, pool -> new EvaluationWorkerThread(pool, random), null, false);
+            case SERIAL: return Runnable::run;
+            default: return ForkJoinPool.commonPool();
+        }
+    }
+
+    /**
+     * Shut down the given executor, if it has been created by
+     * {@link #create(int)} and owns its threads.
+     */
+    static void shutdown(final Executor executor) {
+        if (executor instanceof ExecutorService && executor != ForkJoinPool.commonPool()) {
+            ((ExecutorService)executor).shutdown();
+        }
+    }
+
+    static EvaluationExecutor parse(final String value) {
+        for (EvaluationExecutor executor : values()) {
+            if (executor.key().equalsIgnoreCase(value.trim())) {
+                return executor;
+            }
+        }
+
+        throw new IllegalArgumentException(format("Unknown evaluation executor: '%s'", value));
+    }
+
+    private static final class EvaluationThreadFactory implements ThreadFactory {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        private final ThreadLocal<Random> _random;
+
+        EvaluationThreadFactory(final ThreadLocal<Random> random) {
+            _random = requireNonNull(random);
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(() -> RandomRegistry.using(_random, r -> runnable.run()), "evaluation-" + COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static final class EvaluationWorkerThread extends ForkJoinWorkerThread {
+        private final ThreadLocal<Random> _random;
+
+        EvaluationWorkerThread(final ForkJoinPool pool, final ThreadLocal<Random> random) {
+            super(pool);
+            _random = requireNonNull(random);
+        }
+
+        @Override
+        public void run() {
+            RandomRegistry.using(_random, r -> super.run());
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package fmi.simmulation;
 
+import fmi.recognition.Recognizer;
 import io.jenetics.Phenotype;
 
 import javax.imageio.ImageIO;
@@ -10,12 +11,17 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -34,26 +40,86 @@ import static java.lang.System.getProperty;
  *    [--output-dir <evolving-images>]
  *    [--generations <generation count>]
  *    [--image-generation <generation-gap between stored images>]
+ *    [--snapshot-queue <max. number of images waiting to be written>]
+ *    [--snapshot-format <comma separated list of png, svg, polygons>]
+ *    [--snapshot-delta <true, to write only the changed polygons>]
+ *    [--checkpoint-generation <generation-gap between checkpoints, 0 disables>]
+ *    [--resume <checkpoint file>]
+ *    [--coordinator <host:port of the migration coordinator>]
+ *    [--batch <image directory or manifest file>]
+ *    [--batch-jobs <number of concurrently evolved images>]
+ *    [--target-fitness <fitness at which the evolution ends>]
+ *    [--time-budget <seconds after which the evolution ends, 0 disables>]
+ *    [--stagnation <generations without improvement after which the evolution ends, 0 disables>]
+ *    [--metrics-port <local HTTP port of the metrics endpoint, disabled by default>]
+ *    [--recognition-label <Inception label the evolved image should be recognized as>]
+ *    [--recognition-weight <weight of the recognition probability in the fitness>]
+ *    [--recognition-top <number of best individuals which are classified>]
+ *    [--recognition-interval <generation-gap between classifications>]
+ *    [--inception-dir <directory of the Inception model>]
  *
  */
 public final class EvolvingImages {
 
     private static final int DEFAULT_GENERATIONS = 100_000;
     private static final int DEFAULT_IMAGE_GENERATION = 100;
+    private static final int DEFAULT_SNAPSHOT_QUEUE = 4;
+    private static final int DEFAULT_CHECKPOINT_GENERATION = 1000;
+    private static final Set<SnapshotFormat> DEFAULT_SNAPSHOT_FORMATS = EnumSet.of(SnapshotFormat.PNG);
+    private static final double DEFAULT_RECOGNITION_WEIGHT = 0.2;
+    private static final int DEFAULT_RECOGNITION_TOP = 4;
+    private static final int DEFAULT_RECOGNITION_INTERVAL = 50;
+    // TensorFlow threads of the recognition, the other processors evolve.
+    private static final int RECOGNITION_THREADS = 1;
 
     private static final String PARAM_KEY = "--engine-properties";
     private static final String IMAGE_KEY = "--input-image";
     private static final String OUTPUT_DIR_KEY = "--output-dir";
     private static final String GENERATION_COUNT_KEY = "--generations";
     private static final String GENERATION_IMAGE_GAP_KEY = "--image-generation";
-
-    private static final String IMAGE_PATTERN = "image-%07d.png";
+    private static final String SNAPSHOT_QUEUE_KEY = "--snapshot-queue";
+    private static final String SNAPSHOT_FORMAT_KEY = "--snapshot-format";
+    private static final String SNAPSHOT_DELTA_KEY = "--snapshot-delta";
+    private static final String CHECKPOINT_GENERATION_KEY = "--checkpoint-generation";
+    private static final String RESUME_KEY = "--resume";
+    private static final String COORDINATOR_KEY = "--coordinator";
+    private static final String BATCH_KEY = "--batch";
+    private static final String BATCH_JOBS_KEY = "--batch-jobs";
+    private static final String TARGET_FITNESS_KEY = "--target-fitness";
+    private static final String TIME_BUDGET_KEY = "--time-budget";
+    private static final String STAGNATION_KEY = "--stagnation";
+    private static final String METRICS_PORT_KEY = "--metrics-port";
+    private static final String RECOGNITION_LABEL_KEY = "--recognition-label";
+    private static final String RECOGNITION_WEIGHT_KEY = "--recognition-weight";
+    private static final String RECOGNITION_TOP_KEY = "--recognition-top";
+    private static final String RECOGNITION_INTERVAL_KEY = "--recognition-interval";
+    private static final String INCEPTION_DIR_KEY = "--inception-dir";
+
+    private static final String IMAGE_PATTERN = "image-%07d";
+    private static final String CHECKPOINT_FILE = "checkpoint.bin";
 
     private EngineParam _engineParam;
     private BufferedImage _image;
     private File _outputDir;
     private int _generations;
     private int _imageGeneration;
+    private int _snapshotQueue;
+    private Set<SnapshotFormat> _snapshotFormats;
+    private boolean _snapshotDelta;
+    private int _checkpointGeneration;
+    private Checkpoint _checkpoint;
+    private InetSocketAddress _coordinator;
+    private File _batch;
+    private int _batchJobs;
+    private double _targetFitness;
+    private Duration _timeBudget;
+    private int _stagnation;
+    private int _metricsPort;
+    private String _recognitionLabel;
+    private double _recognitionWeight;
+    private int _recognitionTop;
+    private int _recognitionInterval;
+    private File _inceptionDir;
 
     public EvolvingImages(Map<String, String> params) {
             _engineParam = Optional
@@ -78,6 +144,76 @@ public final class EvolvingImages {
                             .ofNullable(params.get(GENERATION_IMAGE_GAP_KEY))
                             .map(Integer::parseInt)
                             .orElse(DEFAULT_IMAGE_GENERATION);
+
+            _snapshotQueue = Optional
+                            .ofNullable(params.get(SNAPSHOT_QUEUE_KEY))
+                            .map(EvolvingImages::parseSnapshotQueue)
+                            .orElse(DEFAULT_SNAPSHOT_QUEUE);
+            _snapshotFormats = Optional
+                            .ofNullable(params.get(SNAPSHOT_FORMAT_KEY))
+                            .map(SnapshotFormat::parseAll)
+                            .orElse(DEFAULT_SNAPSHOT_FORMATS);
+            _snapshotDelta = Optional
+                            .ofNullable(params.get(SNAPSHOT_DELTA_KEY))
+                            .map(Boolean::parseBoolean)
+                            .orElse(false);
+
+            _checkpointGeneration = Optional
+                            .ofNullable(params.get(CHECKPOINT_GENERATION_KEY))
+                            .map(Integer::parseInt)
+                            .orElse(DEFAULT_CHECKPOINT_GENERATION);
+            _checkpoint = Optional
+                            .ofNullable(params.get(RESUME_KEY))
+                            .map(this::readCheckpoint)
+                            .orElse(null);
+            _coordinator = Optional
+                            .ofNullable(params.get(COORDINATOR_KEY))
+                            .map(EvolvingImages::parseAddress)
+                            .orElse(null);
+
+            _batch = Optional
+                            .ofNullable(params.get(BATCH_KEY))
+                            .map(x -> new File(System.getProperty("user.dir") + x))
+                            .orElse(null);
+            _batchJobs = Optional
+                            .ofNullable(params.get(BATCH_JOBS_KEY))
+                            .map(Integer::parseInt)
+                            .orElse(Runtime.getRuntime().availableProcessors());
+            _targetFitness = Optional
+                            .ofNullable(params.get(TARGET_FITNESS_KEY))
+                            .map(Double::parseDouble)
+                            .orElse(1.0);
+            _timeBudget = Optional
+                            .ofNullable(params.get(TIME_BUDGET_KEY))
+                            .map(Long::parseLong)
+                            .map(Duration::ofSeconds)
+                            .orElse(Duration.ZERO);
+            _stagnation = Optional
+                            .ofNullable(params.get(STAGNATION_KEY))
+                            .map(Integer::parseInt)
+                            .orElse(0);
+            _metricsPort = Optional
+                            .ofNullable(params.get(METRICS_PORT_KEY))
+                            .map(Integer::parseInt)
+                            .orElse(-1);
+
+            _recognitionLabel = params.get(RECOGNITION_LABEL_KEY);
+            _recognitionWeight = Optional
+                            .ofNullable(params.get(RECOGNITION_WEIGHT_KEY))
+                            .map(Double::parseDouble)
+                            .orElse(DEFAULT_RECOGNITION_WEIGHT);
+            _recognitionTop = Optional
+                            .ofNullable(params.get(RECOGNITION_TOP_KEY))
+                            .map(Integer::parseInt)
+                            .orElse(DEFAULT_RECOGNITION_TOP);
+            _recognitionInterval = Optional
+                            .ofNullable(params.get(RECOGNITION_INTERVAL_KEY))
+                            .map(Integer::parseInt)
+                            .orElse(DEFAULT_RECOGNITION_INTERVAL);
+            _inceptionDir = Optional
+                            .ofNullable(params.get(INCEPTION_DIR_KEY))
+                            .map(x -> new File(System.getProperty("user.dir") + x))
+                            .orElse(new File(getProperty("user.dir"), "default"));
     }
 
     private EngineParam readEngineParam(final String name) {
@@ -91,6 +227,38 @@ public final class EvolvingImages {
         }
     }
 
+    /**
+     * Parse an address of the form {@code host:port}.
+     */
+    static InetSocketAddress parseAddress(final String address) {
+        final int index = address.lastIndexOf(':');
+        if (index < 0) {
+            throw new IllegalArgumentException(format("Address must be given as host:port: '%s'", address));
+        }
+
+        return new InetSocketAddress(address.substring(0, index), Integer.parseInt(address.substring(index + 1)));
+    }
+
+    /**
+     * Parse the maximal number of pending snapshots, which must be positive.
+     */
+    static int parseSnapshotQueue(final String value) {
+        final int capacity = Integer.parseInt(value);
+        if (capacity < 1) {
+            throw new IllegalArgumentException(format("Snapshot queue must be at least 1: %d", capacity));
+        }
+
+        return capacity;
+    }
+
+    private Checkpoint readCheckpoint(final String name) {
+        try {
+            return Checkpoint.read(new File(System.getProperty("user.dir") + name).toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private BufferedImage readImage(final String name) {
         try {
             return ImageIO.read(new File(System.getProperty("user.dir") + name));
@@ -119,63 +287,203 @@ public final class EvolvingImages {
                 }
             }
 
-            println("Starting evolution:");
-            println("* Output dir:           " + _outputDir);
-            println("* Generation count:     " + _generations);
-            println("* Generation image gap: " + _imageGeneration);
-            println("Engine parameters:");
-            println("");
-            println(_engineParam);
-            println("");
+            try (MetricsExporter metrics = MetricsExporter.open(_metricsPort)) {
+                if (metrics.getPort() >= 0) {
+                    println("Metrics: http://localhost:%d/metrics", metrics.getPort());
+                }
+                return _batch != null ? runBatch(metrics) : runEvolution(metrics);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return false;
+    }
 
-            evolve(_engineParam, _image, _outputDir, _generations, _imageGeneration);
+    private boolean runEvolution(final MetricsExporter metrics) {
+        println("Starting evolution:");
+        println("* Output dir:           " + _outputDir);
+        println("* Generation count:     " + _generations);
+        println("* Target fitness:       " + _targetFitness);
+        println("* Time budget:          " + _timeBudget.getSeconds() + "s");
+        println("* Stagnation:           " + _stagnation);
+        println("* Generation image gap: " + _imageGeneration);
+        println("* Snapshot queue:       " + _snapshotQueue);
+        println("* Snapshot formats:     " + _snapshotFormats + (_snapshotDelta ? " (delta)" : ""));
+        println("* Checkpoint gap:       " + _checkpointGeneration);
+        if (_checkpoint != null) {
+            println("* Resume generation:    " + _checkpoint.getGeneration());
+        }
+        if (_coordinator != null) {
+            println("* Coordinator:          " + _coordinator);
+        }
+        if (_recognitionLabel != null) {
+            println("* Recognition:          '%s', weight=%s, top=%d, interval=%d",
+                            _recognitionLabel, _recognitionWeight, _recognitionTop, _recognitionInterval);
+        }
+        println("Engine parameters:");
+        println("");
+        println(_engineParam);
+        println("");
+
+        if (_recognitionLabel == null) {
+            evolve(_engineParam, _image, _outputDir, _generations, _targetFitness, _timeBudget, _stagnation, _imageGeneration, new SnapshotWriter(_snapshotQueue, _snapshotFormats, _snapshotDelta), _checkpointGeneration, _checkpoint, _coordinator, metrics, null);
+            return true;
+        }
+
+        // The model is loaded while the evolution begins.
+        final CompletableFuture<Recognizer> recognizer = Recognizer.loadAsync(_inceptionDir, RECOGNITION_THREADS);
+        recognizer.whenComplete((r, e) -> {
+            if (r != null) {
+                log("Loaded recognition model '%s' in %1.1fs.", _inceptionDir, r.getLoadTime().toMillis()/1000.0);
+            } else {
+                log("Can't load recognition model '%s': %s.", _inceptionDir, e);
+            }
+        });
+
+        final RecognitionFitness recognition = RecognitionFitness.of(recognizer, _recognitionLabel, _recognitionWeight, _recognitionTop, _recognitionInterval);
+        try {
+            evolve(_engineParam, _image, _outputDir, _generations, _targetFitness, _timeBudget, _stagnation, _imageGeneration, new SnapshotWriter(_snapshotQueue, _snapshotFormats, _snapshotDelta), _checkpointGeneration, _checkpoint, _coordinator, metrics, recognition);
+        } finally {
+            recognition.close();
+            recognizer.thenAccept(Recognizer::close);
         }
 
-        return _engineParam != null;
+        return true;
     }
 
-    private static void evolve( final EngineParam params, final BufferedImage image, final File outputDir, final long generations, final int generationGap) {
+    private boolean runBatch(final MetricsExporter metrics) {
+        println("Starting batch evolution:");
+        println("* Batch:                " + _batch);
+        println("* Output dir:           " + _outputDir);
+        println("* Concurrent jobs:      " + _batchJobs);
+        println("* Generation count:     " + _generations);
+        println("* Target fitness:       " + _targetFitness);
+        println("* Time budget:          " + _timeBudget.getSeconds() + "s");
+        println("* Stagnation:           " + _stagnation);
+        println("* Snapshot formats:     " + _snapshotFormats);
+        println("Engine parameters:");
+        println("");
+        println(_engineParam);
+        println("");
+
+        try {
+            BatchRunner.of(_engineParam, _batch.toPath(), _outputDir, _generations, _targetFitness, _timeBudget, _stagnation, _batchJobs, _snapshotFormats).run(metrics);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return true;
+    }
+
+    private static void evolve( final EngineParam params, final BufferedImage image, final File outputDir, final long generations, final double targetFitness, final Duration timeBudget, final int stagnation, final int generationGap, final SnapshotWriter writer, final int checkpointGap, final Checkpoint checkpoint, final InetSocketAddress coordinator, final MetricsExporter metrics, final RecognitionFitness recognition) {
         println("Starting evolution.");
         final EvolvingImagesWorker worker = EvolvingImagesWorker.of(params, image);
+        if (recognition != null) {
+            worker.recognize(recognition);
+        }
+        writer.registerMetrics(worker.getMetrics());
+        metrics.register(outputDir.getName(), worker.getMetrics());
+        final Termination termination = Termination.of(worker, generations, targetFitness, timeBudget, stagnation);
+
+        final MigrationClient migration;
+        try {
+            migration = coordinator != null ? MigrationClient.connect(coordinator) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (migration != null) {
+            worker.connect(migration);
+        }
 
         final AtomicReference<Phenotype<PolygonGene, Double>> latest =
                         new AtomicReference<>();
 
         final AtomicLong time = new AtomicLong(0);
+        final AtomicReference<Dimension> resolution = new AtomicReference<>(worker.getReferenceSize());
 
         worker.start((current, best) -> {
             final long generation = current.getGeneration();
 
+            final Dimension size = worker.getReferenceSize();
+            if (!size.equals(resolution.getAndSet(size))) {
+                log("Switching resolution - %07d: %dx%d.", generation, size.width, size.height);
+                latest.set(null);
+            }
+
+            if (checkpointGap > 0 && generation%checkpointGap == 0) {
+                writeCheckpoint(new File(outputDir, CHECKPOINT_FILE), Checkpoint.of(current.getGenotypes(), generation + 1, worker.getLevel()));
+            }
+
             if (generation%generationGap == 0 || generation == 1) {
                 final double duration = System.currentTimeMillis() - time.get();
                 final double speed = generationGap/(duration/1000.0);
                 time.set(System.currentTimeMillis());
 
-                final File file = new File( outputDir, format(IMAGE_PATTERN, generation));
+                final String name = format(IMAGE_PATTERN, generation);
 
                 final Phenotype<PolygonGene, Double> pt = best.getBestPhenotype();
                 if (latest.get() == null || latest.get().compareTo(pt) < 0) {
-                    log("Writing '%s': fitness=%1.4f, speed=%1.2f.", file, pt.getFitness(), speed);
+                    log("Writing '%s': fitness=%1.4f, speed=%1.2f.", new File(outputDir, name), pt.getFitness(), speed);
 
                     latest.set(pt);
                     final PolygonChromosome ch = (PolygonChromosome)pt.getGenotype().getChromosome();
 
-                    writeImage(file, ch, image.getWidth(), image.getHeight());
+                    writer.write(outputDir, name, ch, image.getWidth(), image.getHeight());
                 } else {
                     log("No improvement - %07d: fitness=%1.4f, speed=%1.2f.", generation, pt.getFitness(), speed);
                 }
-            }
 
-//            if (generation >= generations) {
-//                worker.stop();
-//            }
-        });
+                if (!Double.isNaN(worker.getExactBestFitness())) {
+                    log("Sampled fitness - %07d: exact best fitness=%1.4f.", generation, worker.getExactBestFitness());
+                }
+                if (worker.getFitnessCache() != null) {
+                    log("Fitness cache: %s.", worker.getFitnessCache());
+                }
+                if (worker.getPrefixCache() != null) {
+                    log("Prefix render cache: %s.", worker.getPrefixCache());
+                }
+                log("Snapshot writer: %s.", writer);
+                if (recognition != null) {
+                    log("Recognition: %s.", recognition);
+                }
+                if (migration != null) {
+                    log("Migration: sent=%d, received=%d.", migration.getSent(), migration.getReceived());
+                }
+            }
+        }, checkpoint, termination);
 
         try {
             worker.join();
+            if (termination.getReason() != null) {
+                log("Evolution stopped: %s.", termination.getReason());
+            }
+            writer.close();
+            log("Snapshot writer: %s.", writer);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+
+        if (migration != null) {
+            try {
+                migration.close();
+            } catch (IOException e) {
+                log("Can't close the coordinator connection: %s.", e);
+            }
+        }
+    }
+
+    private static void writeCheckpoint(final File file, final Checkpoint checkpoint) {
+        final long start = System.nanoTime();
+        try {
+            checkpoint.write(file.toPath());
+            log("Writing checkpoint '%s': generation=%d, size=%dkB, time=%1.1fms.",
+                            file, checkpoint.getGeneration() - 1, checkpoint.getSize()/1024, (System.nanoTime() - start)/1_000_000.0);
+        } catch (IOException e) {
+            log("Can't write checkpoint '%s': %s.", file, e);
+        }
     }
 
     static void writeImage(final File file, final PolygonChromosome chromosome, final int width, final int height) {
@@ -1,22 +1,44 @@
 package fmi.simmulation;
 
 import io.jenetics.Genotype;
-import io.jenetics.MeanAlterer;
 import io.jenetics.Optimize;
+import io.jenetics.Phenotype;
 import io.jenetics.TournamentSelector;
 import io.jenetics.TruncationSelector;
 import io.jenetics.engine.Codec;
 import io.jenetics.engine.Engine;
+import io.jenetics.engine.EvolutionDurations;
 import io.jenetics.engine.EvolutionResult;
+import io.jenetics.engine.Limits;
 import io.jenetics.stat.MinMax;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.RandomRegistry;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static fmi.simmulation.EngineParam.MIN_REF_IMAGE_SIZE;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -25,12 +47,52 @@ import static java.util.Objects.requireNonNull;
 final class EvolvingImagesWorker {
 
     private final BufferedImage _image;
-    private final BufferedImage _refImage;
-    private final int[] _refImagePixels;
-    private final ThreadLocal<BufferedImage> _workingImage;
+    private final Dimension _referenceImageSize;
+    private final float[] _resolutionScales;
+    private final int _resolutionPlateau;
+    private final int _prefixCacheSize;
+    private final Renderer _renderer;
+    private final boolean _incrementalRender;
+    private final int _samplePixels;
+    private final int _rescoreInterval;
+    private final int _tiles;
+    private final int _polygonCount;
+    private final int _polygonLength;
+    private final int _islandCount;
+    private final int _migrationInterval;
+    private final int _migrationSize;
+    private final FitnessCache _fitnessCache;
+    private final Executor _executor;
+    private final boolean _sharedExecutor;
     private final Engine<PolygonGene, Double> _engine;
 
+    private volatile ReferenceImage _reference;
+    private volatile int _level = 0;
+    private volatile int _samplePhase = 0;
+    private volatile double _exactBestFitness = Double.NaN;
+    private volatile MigrationClient _migration;
+    private volatile RecognitionFitness _recognition;
+    private volatile Consumer<? super PolygonChromosome> _evaluationListener;
+    private volatile EvolutionResult<PolygonGene, Double> _latest;
     private volatile Thread _thread;
+    // The source of the seeds of the per-thread random engines, reseeded on resume.
+    private volatile Random _seeds = new Random();
+    private final ThreadLocal<Random> _random = ThreadLocal.withInitial(() -> new Random(_seeds.nextLong()));
+    private volatile RuntimeException _failure;
+    private volatile boolean _stopping = false;
+    private volatile Diversity _diversity;
+
+    private final Metrics _metrics = new Metrics();
+    private final Metrics.Counter _evaluations = _metrics.counter("evaluations");
+    private final Metrics.Histogram _evaluationTime = _metrics.histogram("evaluation");
+    private final Metrics.Histogram _renderTime = _metrics.histogram("render");
+    private final Metrics.Histogram _diffTime = _metrics.histogram("diff");
+    private final Metrics.Histogram _selectTime = _metrics.histogram("select");
+    private final Metrics.Histogram _alterTime = _metrics.histogram("alter");
+    private final Metrics.Histogram _evolveTime = _metrics.histogram("evolve");
+    private final Metrics.Counter _incrementalRenders = _metrics.counter("incremental_renders");
+    private final Metrics.Counter _fullRenders = _metrics.counter("full_renders");
+    private final Metrics.Counter _immigrants = _metrics.counter("immigrants");
 
     private boolean _paused = false;
     private final Lock _pauseLock = new ReentrantLock();
@@ -39,40 +101,85 @@ final class EvolvingImagesWorker {
     /**
      * Create an new worker instance with the input parameters.
      */
-    private EvolvingImagesWorker(final EngineParam param, final BufferedImage image) {
+    private EvolvingImagesWorker(final EngineParam param, final BufferedImage image, final Executor executor) {
         _image = requireNonNull(image);
+        _referenceImageSize = param.getReferenceImageSize();
+        _resolutionScales = param.getResolutionScales();
+        _resolutionPlateau = param.getResolutionPlateau();
 
-        _refImage = resizeImage( _image, param.getReferenceImageSize().width, param.getReferenceImageSize().height,
-                                BufferedImage.TYPE_INT_ARGB);
-
-        _workingImage = ThreadLocal.withInitial(() -> new BufferedImage(_refImage.getWidth(), _refImage.getHeight(),
-                        BufferedImage.TYPE_INT_ARGB));
-
-        _refImagePixels = _refImage.getData().getPixels(0, 0, _refImage.getWidth(), _refImage.getHeight(), (int[])null);
+        _renderer = param.getRenderer();
+        _incrementalRender = param.isIncrementalRender() && _renderer == Renderer.SOFTWARE;
+        _prefixCacheSize = _renderer == Renderer.SOFTWARE ? param.getPrefixCacheSize() : 0;
+        _samplePixels = param.getFitnessSamplePixels();
+        _rescoreInterval = Math.max(1, param.getFitnessRescoreInterval());
+        _tiles = Math.max(1, param.getFitnessTiles());
+        _polygonCount = param.getPolygonCount();
+        _polygonLength = param.getPolygonLength();
+        _islandCount = Math.max(1, param.getIslandCount());
+        _migrationInterval = Math.max(1, param.getMigrationInterval());
+        _migrationSize = param.getMigrationSize();
+        _fitnessCache = param.getFitnessCacheSize() > 0 ? new FitnessCache(param.getFitnessCacheSize()) : null;
+        _reference = reference(0);
 
         final Codec<PolygonChromosome, PolygonGene> codec = Codec.of(
                                         Genotype.of(new PolygonChromosome(param.getPolygonCount(), param.getPolygonLength())),
                                         gt -> (PolygonChromosome) gt.getChromosome());
 
+        _sharedExecutor = executor != null;
+        _executor = _sharedExecutor
+                        ? executor
+                        : param.getEvaluationExecutor().create(param.getEvaluationThreads(), _random);
         _engine = Engine.builder(this::fitness, codec)
+                        .executor(_executor)
                         .populationSize(param.getPopulationSize())
                         .optimize(Optimize.MAXIMUM)
                         .maximalPhenotypeAge(50)
                         .survivorsSelector(new TruncationSelector<>())
                         .offspringSelector(new TournamentSelector<>(param.getTournamentSize()))
                         .alterers(
-                                        new MeanAlterer<>(0.175),
+                                        new PolygonMeanAlterer<>(0.175),
                                         new PolygonMutator<>(param.getMutationRate(), param.getMutationMultitude()),
                                         new UniformCrossover<>(0.5))
                         .build();
+
+        _metrics.rate("evaluations_per_second", _evaluations::get);
+        _metrics.rate("jvm_allocated_bytes_per_second", Metrics::allocatedBytes);
+        _metrics.gauge("generation", () -> latest(r -> (double)r.getGeneration()));
+        _metrics.gauge("level", () -> _level);
+        _metrics.gauge("best_fitness", () -> latest(EvolutionResult::getBestFitness));
+        _metrics.gauge("mean_fitness", () -> latest(r -> r.getPopulation().stream()
+                        .mapToDouble(Phenotype::getFitness).average().orElse(Double.NaN)));
+        _metrics.gauge("exact_best_fitness", this::getExactBestFitness);
+        _metrics.gauge("diversity", this::getDiversity);
+        _metrics.gauge("incremental_render_share", () -> {
+            final long incremental = _incrementalRenders.get();
+            final long renders = incremental + _fullRenders.get();
+            return renders > 0 ? (double)incremental/renders : 0.0;
+        });
+        if (_prefixCacheSize > 0) {
+            _metrics.gauge("prefix_cache_hit_rate", () -> getPrefixCache().getHitRate());
+            _metrics.gauge("prefix_cache_entries", () -> getPrefixCache().getEntries());
+            _metrics.gauge("prefix_cache_memory_bytes", () -> getPrefixCache().getMemoryUsage());
+        }
+        if (_fitnessCache != null) {
+            _metrics.gauge("fitness_cache_hits", _fitnessCache::getHits);
+            _metrics.gauge("fitness_cache_misses", _fitnessCache::getMisses);
+            _metrics.gauge("fitness_cache_hit_rate", _fitnessCache::getHitRate);
+            _metrics.gauge("fitness_cache_collisions", _fitnessCache::getCollisions);
+            _metrics.gauge("fitness_cache_size", _fitnessCache::size);
+        }
     }
 
-    private static BufferedImage resizeImage(final BufferedImage image, final int width, final int height, final int type) {
-        final BufferedImage resizedImage = new BufferedImage(width, height, type);
-        final Graphics2D g = resizedImage.createGraphics();
-        g.drawImage(image, 0, 0, width, height, null);
-        g.dispose();
-        return resizedImage;
+    /**
+     * Create the reference image for the given level of the resolution
+     * schedule.
+     */
+    private ReferenceImage reference(final int level) {
+        final float scale = _resolutionScales[level];
+        final int width = Math.max(MIN_REF_IMAGE_SIZE.width, Math.round(scale*_referenceImageSize.width));
+        final int height = Math.max(MIN_REF_IMAGE_SIZE.height, Math.round(scale*_referenceImageSize.height));
+
+        return ReferenceImage.of(_image, width, height, _prefixCacheSize);
     }
 
     BufferedImage getImage() {
@@ -80,33 +187,353 @@ final class EvolvingImagesWorker {
     }
 
     /**
-     * Calculate the fitness function - check pixel by pixel.
+     * Return the size of the reference image the fitness is currently
+     * evaluated with.
+     */
+    Dimension getReferenceSize() {
+        final ReferenceImage reference = _reference;
+        return new Dimension(reference.width(), reference.height());
+    }
+
+    /**
+     * Return the current level of the resolution schedule.
+     */
+    int getLevel() {
+        return _level;
+    }
+
+    /**
+     * Return {@code true} if the evolution runs at the full resolution.
+     */
+    boolean isFinalLevel() {
+        return _level == _resolutionScales.length - 1;
+    }
+
+    /**
+     * Return the total number of fitness evaluations.
+     */
+    long getEvaluations() {
+        return _evaluations.get();
+    }
+
+    /**
+     * Return the live metrics of the evolution. The gauges of the fitness and
+     * the population are calculated from the latest evolution result, when
+     * they are read.
+     */
+    Metrics getMetrics() {
+        return _metrics;
+    }
+
+    private double latest(final ToDoubleFunction<EvolutionResult<PolygonGene, Double>> value) {
+        final EvolutionResult<PolygonGene, Double> result = _latest;
+        return result != null ? value.applyAsDouble(result) : Double.NaN;
+    }
+
+    /**
+     * Return the diversity of the population of the latest result, which is
+     * computed at most once per generation.
+     */
+    private double getDiversity() {
+        final EvolutionResult<PolygonGene, Double> result = _latest;
+        if (result == null) {
+            return Double.NaN;
+        }
+
+        Diversity diversity = _diversity;
+        if (diversity == null || diversity.result != result) {
+            diversity = new Diversity(result, diversity(result.getPopulation()));
+            _diversity = diversity;
+        }
+        return diversity.value;
+    }
+
+    /**
+     * Return the mean standard deviation of the polygon components over the
+     * given population. Zero means that all individuals are equal.
+     */
+    private static double diversity(final ISeq<Phenotype<PolygonGene, Double>> population) {
+        double[] sum = null;
+        double[] squares = null;
+        for (Phenotype<PolygonGene, Double> pt : population) {
+            final float[] data = ((PolygonChromosome)pt.getGenotype().getChromosome()).toArray();
+            if (sum == null) {
+                sum = new double[data.length];
+                squares = new double[data.length];
+            }
+            for (int i = 0; i < data.length; ++i) {
+                sum[i] += data[i];
+                squares[i] += data[i]*data[i];
+            }
+        }
+        if (sum == null) {
+            return Double.NaN;
+        }
+
+        final int n = population.size();
+        double deviation = 0;
+        for (int i = 0; i < sum.length; ++i) {
+            final double mean = sum[i]/n;
+            deviation += Math.sqrt(Math.max(0, squares[i]/n - mean*mean));
+        }
+        return deviation/sum.length;
+    }
+
+    private void record(final EvolutionResult<PolygonGene, Double> result) {
+        final EvolutionDurations durations = result.getDurations();
+        _selectTime.record(durations.getOffspringSelectionDuration().toNanos() +
+                        durations.getSurvivorsSelectionDuration().toNanos());
+        _alterTime.record(durations.getOffspringAlterDuration().toNanos());
+        _evolveTime.record(durations.getEvolveDuration().toNanos());
+        _latest = result;
+        _metrics.sample();
+    }
+
+    /**
+     * Exchange migrants with the other nodes of a distributed evolution,
+     * through the given connection to their coordinator. Must be called
+     * before the worker is started. The island model is used, even with a
+     * single local island.
+     */
+    void connect(final MigrationClient migration) {
+        _migration = migration;
+    }
+
+    /**
+     * Set the listener which is called with every evaluated chromosome, on
+     * the evaluation thread. An exception thrown by the listener fails the
+     * evaluation, and with it the evolution. Must be called before the
+     * worker is started.
+     */
+    void evaluationListener(final Consumer<? super PolygonChromosome> listener) {
+        _evaluationListener = requireNonNull(listener);
+    }
+
+    /**
+     * Combine the pixel fitness with the given recognition fitness. Must be
+     * called before the worker is started.
+     */
+    void recognize(final RecognitionFitness recognition) {
+        _recognition = requireNonNull(recognition);
+        _metrics.gauge("recognition_best_score", recognition::getBestScore);
+        _metrics.gauge("recognition_classified", recognition::getClassified);
+        _metrics.gauge("recognition_cache_hits", recognition::getCacheHits);
+        _metrics.gauge("recognition_skipped", recognition::getSkipped);
+    }
+
+    /**
+     * Return the recognition fitness, or {@code null} if the fitness is
+     * based on the pixels only.
+     */
+    RecognitionFitness getRecognition() {
+        return _recognition;
+    }
+
+    /**
+     * Return the fitness cache, or {@code null} if it is disabled.
+     */
+    FitnessCache getFitnessCache() {
+        return _fitnessCache;
+    }
+
+    /**
+     * Return the prefix render cache, or {@code null} if it is disabled.
+     */
+    PrefixRenderCache getPrefixCache() {
+        return _reference.prefixCache();
+    }
+
+    /**
+     * Return {@code true} if the fitness is estimated from a subset of the
+     * pixels of the given reference image.
      */
+    private boolean isSampled(final ReferenceImage reference) {
+        return _samplePixels > 0 && _samplePixels < reference.width()*reference.height();
+    }
+
+    /**
+     * Return the exact fitness of the best individual, as determined by the
+     * last periodic re-scoring, if the fitness is sampled. Otherwise
+     * {@code NaN} is returned.
+     */
+    double getExactBestFitness() {
+        return isSampled(_reference) ? _exactBestFitness : Double.NaN;
+    }
+
     private double fitness(final PolygonChromosome chromosome) {
-        final BufferedImage image = _workingImage.get();
-        final Graphics2D g2 = image.createGraphics();
-        final int width = image.getWidth();
-        final int height = image.getHeight();
+        final long start = System.nanoTime();
+        final double fitness = _fitnessCache != null ? cachedEvaluate(chromosome, _fitnessCache) : evaluate(chromosome);
+        chromosome.forgetAncestors(_incrementalRender ? _reference.pixels() : null);
+        _evaluations.increment();
+        _evaluationTime.record(System.nanoTime() - start);
 
-        chromosome.draw(g2, width, height);
-        g2.dispose();
+        final Consumer<? super PolygonChromosome> listener = _evaluationListener;
+        if (listener != null) {
+            listener.accept(chromosome);
+        }
 
-        final int[] refPixels = _refImagePixels;
-        final int[] testPixels = image.getData().getPixels(0, 0, width, height, (int[])null);
+        final RecognitionFitness recognition = _recognition;
+        return recognition != null ? recognition.fitness(chromosome, fitness) : fitness;
+    }
 
-        int difference = 0;
-        int p = width*height*4 - 1; // 4 channels: rgba
-        int idx = 0;
-        do {
-            if (idx++%4 != 0) { // ignore the alpha channel for fitness
-                int dp = testPixels[p] - refPixels[p];
-                difference += (dp < 0) ? -dp : dp;
+    /**
+     * Return the cached fitness of the given chromosome, or evaluate and
+     * cache it.
+     */
+    private double cachedEvaluate(final PolygonChromosome chromosome, final FitnessCache cache) {
+        // The epoch is read before the reference image the fitness depends on.
+        final int epoch = cache.epoch();
+        final long hash = chromosome.contentHash();
+        final double cached = cache.get(chromosome, hash);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+
+        final double fitness = evaluate(chromosome);
+        cache.put(chromosome, hash, fitness, epoch);
+        return fitness;
+    }
+
+    /**
+     * Calculate the fitness function - check pixel by pixel. The fused and
+     * incremental renderers score while rendering, so only the rendering
+     * and the difference of the other renderers are timed separately.
+     */
+    private double evaluate(final PolygonChromosome chromosome) {
+        final ReferenceImage reference = _reference;
+        final int width = reference.width();
+        final int height = reference.height();
+
+        if (isSampled(reference)) {
+            final int[] rows = reference.sampleRows(_samplePixels, _samplePhase);
+            final long difference = reference.rasterizer().difference(chromosome, reference.pixels(), rows);
+            return 1.0 - difference/(rows.length*width*3.0*256);
+        }
+
+        final long difference;
+        if (_incrementalRender) {
+            difference = incrementalDifference(chromosome, reference);
+        } else if (_renderer == Renderer.FUSED && _tiles > 1 && height >= 2*_tiles) {
+            difference = tiledDifference(chromosome, reference);
+        } else if (_renderer == Renderer.FUSED) {
+            difference = reference.rasterizer().difference(chromosome, reference.pixels(), 0, height);
+        } else {
+            final long start = System.nanoTime();
+            final BufferedImage image = reference.workingImage();
+            if (_renderer == Renderer.SOFTWARE) {
+                draw(chromosome, ReferenceImage.pixels(image), reference);
+            } else {
+                final Graphics2D g2 = image.createGraphics();
+                chromosome.draw(g2, width, height);
+                g2.dispose();
             }
-        } while (--p > 0);
+
+            final long rendered = System.nanoTime();
+            difference = PixelDifference.sum(ReferenceImage.pixels(image), reference.pixels(), 0, width*height);
+            _renderTime.record(rendered - start);
+            _diffTime.record(System.nanoTime() - rendered);
+        }
 
         return 1.0 - difference/(width*height*3.0*256);
     }
 
+    /**
+     * Render and score horizontal tiles of the image concurrently, each with
+     * the rasterizer of the executing thread, and sum up their differences.
+     * Called from a fork-join worker, the tiles are executed by its pool.
+     */
+    private long tiledDifference(final PolygonChromosome chromosome, final ReferenceImage reference) {
+        final int height = reference.height();
+        final int tiles = _tiles;
+
+        return IntStream.range(0, tiles).parallel()
+                        .mapToLong(tile -> reference.rasterizer().difference(
+                                        chromosome, reference.pixels(), tile*height/tiles, (tile + 1)*height/tiles))
+                        .sum();
+    }
+
+    /**
+     * Calculate the fitness from all pixels of the reference image.
+     */
+    private static double exactFitness(final PolygonChromosome chromosome, final ReferenceImage reference) {
+        final int width = reference.width();
+        final int height = reference.height();
+        final long difference = reference.rasterizer().difference(chromosome, reference.pixels(), 0, height);
+
+        return 1.0 - difference/(width*height*3.0*256);
+    }
+
+    private static void draw(final PolygonChromosome chromosome, final int[] pixels, final ReferenceImage reference) {
+        if (reference.prefixCache() != null) {
+            reference.rasterizer().draw(chromosome, pixels, reference.prefixCache());
+        } else {
+            reference.rasterizer().draw(chromosome, pixels);
+        }
+    }
+
+    /**
+     * Render the given chromosome, starting from the cached rendering of its
+     * nearest rendered ancestor if available. The alterers derive several
+     * unevaluated chromosomes in a row, and chromosomes answered by the
+     * fitness cache aren't rendered, so the ancestor is not necessarily the
+     * parent. Only the union of the bounding boxes of the polygons, which
+     * differ from the ancestor, before and after the change, is rendered
+     * again. The rendering is cached for the offspring of the chromosome.
+     */
+    private long incrementalDifference(final PolygonChromosome chromosome, final ReferenceImage image) {
+        final int width = image.width();
+        final int height = image.height();
+        final int[] reference = image.pixels();
+        final PolygonRasterizer rasterizer = image.rasterizer();
+
+        // Chromosomes the mutator left unchanged are already rendered.
+        final PolygonChromosome.Render cached = chromosome.render(reference);
+        if (cached != null) {
+            _incrementalRenders.increment();
+            return cached.difference;
+        }
+
+        final PolygonChromosome ancestor = chromosome.renderedAncestor(reference);
+        final PolygonChromosome.Render base = ancestor != null ? ancestor.render(reference) : null;
+
+        PolygonChromosome.Render render = null;
+        if (base != null) {
+            final int[] dirty = {width, height, 0, 0};
+            for (int i = 0; i < chromosome.length(); ++i) {
+                final Polygon original = ancestor.getGene(i).getAllele();
+                final Polygon changed = chromosome.getGene(i).getAllele();
+                if (original != changed && !original.equals(changed)) {
+                    rasterizer.include(original, dirty);
+                    rasterizer.include(changed, dirty);
+                }
+            }
+
+            final int area = Math.max(0, dirty[2] - dirty[0])*Math.max(0, dirty[3] - dirty[1]);
+            if (area == 0) {
+                render = base;
+            } else if (area*2 <= width*height) {
+                final int[] pixels = base.pixels.clone();
+                rasterizer.draw(chromosome, pixels, dirty[0], dirty[1], dirty[2], dirty[3]);
+
+                render = new PolygonChromosome.Render(reference, pixels, base.difference -
+                                PixelDifference.sum(base.pixels, reference, width, dirty[0], dirty[1], dirty[2], dirty[3]) +
+                                PixelDifference.sum(pixels, reference, width, dirty[0], dirty[1], dirty[2], dirty[3]));
+            }
+        }
+
+        if (render == null) {
+            final int[] pixels = new int[width*height];
+            draw(chromosome, pixels, image);
+            render = new PolygonChromosome.Render(reference, pixels, PixelDifference.sum(pixels, reference, 0, pixels.length));
+            _fullRenders.increment();
+        } else {
+            _incrementalRenders.increment();
+        }
+
+        chromosome.render(render);
+        return render.difference;
+    }
+
     /**
      * Starts the evolution worker with the given evolution result callback. The
      * callback may be null.
@@ -115,20 +542,343 @@ final class EvolvingImagesWorker {
      *        contains the current result and the second the best.
      */
     public void start(final BiConsumer<EvolutionResult<PolygonGene, Double>,EvolutionResult<PolygonGene, Double>> callback) {
+        start(callback, null);
+    }
+
+    /**
+     * Starts the evolution worker from the given checkpoint. The threads of
+     * this worker use random engines seeded from the seed of the checkpoint;
+     * the global random engine is left untouched. This covers the evaluation
+     * threads only if the worker has created them, and not the common
+     * {@code ForkJoinPool} or a shared executor.
+     *
+     * @param callback the {@code EvolutionResult} callback, may be null
+     * @param checkpoint the checkpoint to resume from, or {@code null} to start
+     *        with a random population
+     * @throws IllegalArgumentException if the polygons of the checkpoint don't
+     *         match the engine parameters
+     */
+    public void start(
+                    final BiConsumer<EvolutionResult<PolygonGene, Double>,EvolutionResult<PolygonGene, Double>> callback,
+                    final Checkpoint checkpoint)
+    {
+        start(callback, checkpoint, result -> true);
+    }
+
+    /**
+     * Starts the evolution worker, which ends as soon as the given limit
+     * rejects an evolution result. The limit is tested with every result,
+     * before it is passed to the callback.
+     *
+     * @param callback the {@code EvolutionResult} callback, may be null
+     * @param checkpoint the checkpoint to resume from, or {@code null} to start
+     *        with a random population
+     * @param limit the predicate which ends the evolution when it returns
+     *        {@code false}
+     * @throws IllegalArgumentException if the polygons of the checkpoint don't
+     *         match the engine parameters
+     */
+    public void start(
+                    final BiConsumer<EvolutionResult<PolygonGene, Double>,EvolutionResult<PolygonGene, Double>> callback,
+                    final Checkpoint checkpoint,
+                    final Predicate<? super EvolutionResult<PolygonGene, Double>> limit)
+    {
+        requireNonNull(limit);
+        if (checkpoint != null) {
+            if (checkpoint.getPolygonCount() != _polygonCount || checkpoint.getPolygonLength() != _polygonLength) {
+                throw new IllegalArgumentException(String.format(
+                                "Checkpoint polygons (count=%d, length=%d) don't match the engine parameters (count=%d, length=%d).",
+                                checkpoint.getPolygonCount(), checkpoint.getPolygonLength(), _polygonCount, _polygonLength));
+            }
+            _seeds = new Random(checkpoint.getSeed());
+        }
+
+        _stopping = false;
         final Thread thread = new Thread(() -> {
-                final MinMax<EvolutionResult<PolygonGene, Double>> best = MinMax.of();
-                _engine.stream().limit(result -> !Thread.currentThread().isInterrupted())
-                   .peek(best).forEach(r -> {
-                                                waiting();
-                                                if (callback != null) {
-                                                    callback.accept(r, best.getMax());
-                                                }
-                    });
-                });
+            try {
+                RandomRegistry.using(_random, r -> evolve(callback, checkpoint, limit));
+            } catch (RuntimeException e) {
+                // An evaluation interrupted by stop() is cancelled. Otherwise the
+                // engine reports the failures of the evaluation threads this way.
+                if (!(_stopping && e instanceof CancellationException)) {
+                    _failure = cause(e);
+                    throw e;
+                }
+            } finally {
+                if (!_sharedExecutor) {
+                    EvaluationExecutor.shutdown(_executor);
+                }
+            }
+        });
         thread.start();
         _thread = thread;
     }
 
+    /**
+     * Return the exception which has been thrown by the fitness function or an
+     * alterer, and which the engine has wrapped into the given one.
+     */
+    private static RuntimeException cause(final RuntimeException exception) {
+        Throwable cause = exception;
+        while ((cause instanceof CancellationException || cause instanceof CompletionException || cause instanceof ExecutionException)
+                        && cause.getCause() != null)
+        {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException ? (RuntimeException)cause : exception;
+    }
+
+    private void evolve(
+                    final BiConsumer<EvolutionResult<PolygonGene, Double>,EvolutionResult<PolygonGene, Double>> callback,
+                    final Checkpoint checkpoint,
+                    final Predicate<? super EvolutionResult<PolygonGene, Double>> limit)
+    {
+        final AtomicBoolean limited = new AtomicBoolean(false);
+        final Predicate<EvolutionResult<PolygonGene, Double>> proceed = result -> {
+            if (!Thread.currentThread().isInterrupted() && limit.test(result)) {
+                return true;
+            }
+            limited.set(true);
+            return false;
+        };
+
+        ISeq<Genotype<PolygonGene>> population = checkpoint != null ? checkpoint.getPopulation() : null;
+        long generation = checkpoint != null ? checkpoint.getGeneration() : 1;
+        final int start = checkpoint != null ? Math.min(checkpoint.getLevel(), _resolutionScales.length - 1) : 0;
+
+        for (int level = start; level < _resolutionScales.length && !limited.get(); ++level) {
+            if (level > 0) {
+                _reference = reference(level);
+                // Rescored with the next result, at the new resolution.
+                _exactBestFitness = Double.NaN;
+                if (_fitnessCache != null) {
+                    _fitnessCache.invalidate();
+                }
+            }
+            _level = level;
+
+            // Fitness values of different resolutions are not comparable.
+            final MinMax<EvolutionResult<PolygonGene, Double>> best = MinMax.of();
+            final AtomicReference<EvolutionResult<PolygonGene, Double>> last = new AtomicReference<>();
+            final Predicate<? super EvolutionResult<PolygonGene, Double>> plateau =
+                            level < _resolutionScales.length - 1
+                                            ? Limits.bySteadyFitness(_resolutionPlateau)
+                                            : result -> true;
+
+            final Consumer<EvolutionResult<PolygonGene, Double>> step = r -> {
+                last.set(r);
+                record(r);
+                if (_recognition != null) {
+                    _recognition.update(r);
+                }
+                if (r.getGeneration()%_rescoreInterval == 0 || Double.isNaN(_exactBestFitness)) {
+                    rescore(best.getMax());
+                }
+                waiting();
+                if (callback != null) {
+                    callback.accept(r, best.getMax());
+                }
+            };
+
+            if (_islandCount > 1 || _migration != null) {
+                evolveIslands(population, generation, proceed.and(plateau), best.andThen(step));
+            } else {
+                (population == null ? _engine.stream() : _engine.stream(population, generation))
+                   .limit(proceed)
+                   .limit(plateau)
+                   .peek(best).forEach(step);
+            }
+
+            if (last.get() != null) {
+                population = last.get().getGenotypes();
+                generation = last.get().getGeneration() + 1;
+            }
+        }
+    }
+
+    /**
+     * Evolve the given population with the island model. Every island
+     * evolves its share of the population on its own thread and sends its
+     * best individuals to the next island every migration interval. The
+     * first island runs on the calling thread and passes the merged
+     * population of all islands to the given consumer, until the given
+     * predicate rejects it.
+     */
+    private void evolveIslands(
+                    final ISeq<Genotype<PolygonGene>> population,
+                    final long generation,
+                    final Predicate<? super EvolutionResult<PolygonGene, Double>> proceed,
+                    final Consumer<? super EvolutionResult<PolygonGene, Double>> consumer)
+    {
+        final List<Island> islands = IntStream.range(0, _islandCount)
+                        .mapToObj(index -> new Island(index, _immigrants))
+                        .collect(Collectors.toList());
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        final List<Thread> threads = new ArrayList<>();
+        for (Island island : islands.subList(1, islands.size())) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    RandomRegistry.using(_random, r -> evolve(island, islands, population, generation, running, result -> waiting()));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    running.set(false);
+                }
+            }, "island-" + island.index());
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        try {
+            evolve(islands.get(0), islands, population, generation, running, result -> {
+                final EvolutionResult<PolygonGene, Double> merged = merge(islands, result);
+                exchange(islands.get(0), result, merged);
+                // Like EvolutionStream.limit, the rejected result is still passed on.
+                if (!proceed.test(merged)) {
+                    running.set(false);
+                }
+                consumer.accept(merged);
+            });
+        } finally {
+            running.set(false);
+
+            boolean interrupted = false;
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // The evolution of the whole node fails with any of its islands.
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void evolve(
+                    final Island island,
+                    final List<Island> islands,
+                    final ISeq<Genotype<PolygonGene>> population,
+                    final long generation,
+                    final AtomicBoolean running,
+                    final Consumer<? super EvolutionResult<PolygonGene, Double>> consumer)
+    {
+        final Island neighbour = islands.get((island.index() + 1)%islands.size());
+
+        EvolutionResult<PolygonGene, Double> result = population == null
+                        ? _engine.iterator().next()
+                        : _engine.iterator(share(population, island.index(), islands.size()), generation).next();
+
+        while (true) {
+            island.result(result);
+            consumer.accept(result);
+            if (!running.get() || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            // A single island would only receive copies of its own best individuals.
+            if (islands.size() > 1 && result.getGeneration()%_migrationInterval == 0) {
+                neighbour.migrate(result, _migrationSize);
+            }
+            result = _engine.evolve(island.next(result));
+        }
+    }
+
+    /**
+     * Hand the migrants received from remote nodes to the given island and,
+     * every migration interval, send the best individuals of the island and
+     * the status of this node to the coordinator. On a connection error, the
+     * node continues without migration.
+     */
+    private void exchange(
+                    final Island island,
+                    final EvolutionResult<PolygonGene, Double> result,
+                    final EvolutionResult<PolygonGene, Double> merged)
+    {
+        final MigrationClient migration = _migration;
+        if (migration != null) {
+            for (Genotype<PolygonGene> gt = migration.poll(); gt != null; gt = migration.poll()) {
+                island.migrate(gt);
+            }
+
+            if (result.getGeneration()%_migrationInterval == 0) {
+                try {
+                    migration.send(Island.best(result, _migrationSize));
+                    migration.status(merged.getGeneration(), merged.getBestFitness(), getEvaluations());
+                } catch (IOException e) {
+                    System.err.println("Migration disabled: " + e);
+                    _migration = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return every {@code count}th individual of the given population,
+     * starting at the given index.
+     */
+    private static ISeq<Genotype<PolygonGene>> share(
+                    final ISeq<Genotype<PolygonGene>> population,
+                    final int index,
+                    final int count)
+    {
+        final MSeq<Genotype<PolygonGene>> share = MSeq.ofLength(Math.max(0, (population.size() - index + count - 1)/count));
+        for (int i = index, j = 0; i < population.size(); i += count, ++j) {
+            share.set(j, population.get(i));
+        }
+
+        return share.toISeq();
+    }
+
+    /**
+     * Return the given result of the first island, with the latest
+     * populations of all islands.
+     */
+    private static EvolutionResult<PolygonGene, Double> merge(
+                    final List<Island> islands,
+                    final EvolutionResult<PolygonGene, Double> result)
+    {
+        final List<EvolutionResult<PolygonGene, Double>> results = islands.stream()
+                        .map(Island::result)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+
+        return EvolutionResult.of(
+                        Optimize.MAXIMUM,
+                        results.stream().flatMap(r -> r.getPopulation().stream()).collect(ISeq.toISeq()),
+                        result.getGeneration(),
+                        result.getDurations(),
+                        results.stream().mapToInt(EvolutionResult::getKillCount).sum(),
+                        results.stream().mapToInt(EvolutionResult::getInvalidCount).sum(),
+                        results.stream().mapToInt(EvolutionResult::getAlterCount).sum());
+    }
+
+    /**
+     * Score the best individual exactly and rotate the sampled pixel rows.
+     */
+    private void rescore(final EvolutionResult<PolygonGene, Double> best) {
+        final ReferenceImage reference = _reference;
+        if (isSampled(reference)) {
+            final PolygonChromosome chromosome = (PolygonChromosome)best.getBestPhenotype().getGenotype().getChromosome();
+            _exactBestFitness = exactFitness(chromosome, reference);
+            _samplePhase++;
+            if (_fitnessCache != null) {
+                _fitnessCache.invalidate();
+            }
+        }
+    }
+
     private void waiting() {
         _pauseLock.lock();
         try {
@@ -148,6 +898,7 @@ final class EvolvingImagesWorker {
         resume();
         final Thread thread = _thread;
         if (thread != null) {
+            _stopping = true;
             thread.interrupt();
             try {
                 thread.join();
@@ -166,6 +917,14 @@ final class EvolvingImagesWorker {
         }
     }
 
+    /**
+     * Return the exception which has ended the evolution, or {@code null} if
+     * the evolution hasn't failed.
+     */
+    RuntimeException getFailure() {
+        return _failure;
+    }
+
     public void pause() {
         _pauseLock.lock();
         try {
@@ -186,7 +945,28 @@ final class EvolvingImagesWorker {
     }
 
     public static EvolvingImagesWorker of( final EngineParam param,final BufferedImage image) {
-        return new EvolvingImagesWorker(param, image);
+        return new EvolvingImagesWorker(param, image, null);
+    }
+
+    /**
+     * Create a worker which evaluates the fitness with the given executor,
+     * which is shared with other workers and not shut down by this one.
+     */
+    static EvolvingImagesWorker of(final EngineParam param, final BufferedImage image, final Executor executor) {
+        return new EvolvingImagesWorker(param, image, requireNonNull(executor));
+    }
+
+    /**
+     * The diversity of the population of an evolution result.
+     */
+    private static final class Diversity {
+        final EvolutionResult<PolygonGene, Double> result;
+        final double value;
+
+        Diversity(final EvolutionResult<PolygonGene, Double> result, final double value) {
+            this.result = result;
+            this.value = value;
+        }
     }
 
 }
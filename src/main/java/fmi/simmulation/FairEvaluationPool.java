@@ -0,0 +1,109 @@
+package fmi.simmulation;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of evaluation threads, shared by several workers. Every
+ * worker submits its tasks to its own lane, and the threads take the tasks
+ * from the lanes in round-robin order. A worker with a large population can
+ * therefore not starve the others.
+ */
+final class FairEvaluationPool implements AutoCloseable {
+
+    private final Lock _lock = new ReentrantLock();
+    private final Condition _available = _lock.newCondition();
+
+    // Lanes with pending tasks, in the order they are served.
+    private final Queue<Lane> _ready = new ArrayDeque<>();
+    private final Thread[] _threads;
+    private boolean _closed = false;
+
+    /**
+     * @param threads the number of evaluation threads, a value &le; 0 uses
+     *        one thread per available processor
+     */
+    FairEvaluationPool(final int threads) {
+        _threads = new Thread[threads > 0 ? threads : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < _threads.length; ++i) {
+            _threads[i] = new Thread(this::work, "evaluation-pool-" + (i + 1));
+            _threads[i].setDaemon(true);
+            _threads[i].start();
+        }
+    }
+
+    /**
+     * Return a new lane of this pool, which is used as executor of one
+     * worker.
+     */
+    Executor newLane() {
+        return new Lane();
+    }
+
+    private void work() {
+        while (true) {
+            final Runnable task;
+            _lock.lock();
+            try {
+                while (_ready.isEmpty() && !_closed) {
+                    _available.awaitUninterruptibly();
+                }
+                if (_ready.isEmpty()) {
+                    return;
+                }
+
+                final Lane lane = _ready.poll();
+                task = lane._tasks.poll();
+                if (!lane._tasks.isEmpty()) {
+                    _ready.add(lane);
+                }
+            } finally {
+                _lock.unlock();
+            }
+
+            task.run();
+        }
+    }
+
+    /**
+     * Finish the pending tasks and stop the threads.
+     */
+    @Override
+    public void close() {
+        _lock.lock();
+        try {
+            _closed = true;
+            _available.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private final class Lane implements Executor {
+        private final Queue<Runnable> _tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(final Runnable task) {
+            _lock.lock();
+            try {
+                if (_closed) {
+                    throw new RejectedExecutionException("Evaluation pool has been closed.");
+                }
+
+                _tasks.add(task);
+                if (_tasks.size() == 1) {
+                    _ready.add(this);
+                }
+                _available.signal();
+            } finally {
+                _lock.unlock();
+            }
+        }
+    }
+
+}
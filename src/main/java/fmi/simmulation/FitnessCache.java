@@ -0,0 +1,200 @@
+package fmi.simmulation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Caches fitness values by the content of their chromosome, so that
+ * offspring which are identical to an already evaluated individual aren't
+ * rendered again. The cache is keyed by the 64 bit content hash of the
+ * chromosome, and stores a copy of its polygon data, which is compared on
+ * every hit; a colliding chromosome is therefore never given a wrong
+ * fitness.
+ *
+ * The cache is split into segments, each a least recently used map with its
+ * own lock, so that concurrent evaluations rarely contend. The fitness
+ * depends on the reference image, so the cached values are tagged with an
+ * epoch, and {@link #invalidate()} starts a new one whenever the reference
+ * image changes.
+ */
+final class FitnessCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] _segments;
+    private volatile int _epoch = 0;
+
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _collisions = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+
+    /**
+     * @param capacity the maximal number of cached fitness values
+     */
+    FitnessCache(final int capacity) {
+        final int segments = Math.max(1, Math.min(SEGMENTS, capacity));
+        _segments = new Segment[segments];
+        for (int i = 0; i < segments; ++i) {
+            _segments[i] = new Segment((capacity + segments - 1)/segments);
+        }
+    }
+
+    /**
+     * Return the current epoch, which must be passed to {@link #put} with
+     * the fitness evaluated in it.
+     */
+    int epoch() {
+        return _epoch;
+    }
+
+    /**
+     * Return the cached fitness of the given chromosome, or {@code NaN} if
+     * it isn't cached in the current epoch.
+     */
+    double get(final PolygonChromosome chromosome, final long hash) {
+        final Entry entry = segment(hash).get(hash);
+        if (entry != null && entry.epoch == _epoch) {
+            if (entry.matches(chromosome)) {
+                _hits.increment();
+                return entry.fitness;
+            }
+            _collisions.increment();
+        }
+
+        _misses.increment();
+        return Double.NaN;
+    }
+
+    /**
+     * Cache the fitness of the given chromosome, which has been evaluated in
+     * the given epoch. The fitness is dropped if the epoch is over.
+     */
+    void put(final PolygonChromosome chromosome, final long hash, final double fitness, final int epoch) {
+        if (epoch == _epoch) {
+            segment(hash).put(hash, new Entry(chromosome.toArray(), fitness, epoch));
+        }
+    }
+
+    /**
+     * Forget all cached values. Must not be called concurrently.
+     */
+    void invalidate() {
+        _epoch++;
+        for (Segment segment : _segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segment(final long hash) {
+        return _segments[(int)((hash ^ hash >>> 32) & 0x7FFFFFFF)%_segments.length];
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : _segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    long getHits() {
+        return _hits.sum();
+    }
+
+    long getMisses() {
+        return _misses.sum();
+    }
+
+    long getCollisions() {
+        return _collisions.sum();
+    }
+
+    long getEvictions() {
+        return _evictions.sum();
+    }
+
+    /**
+     * Return the fraction of lookups which were answered by the cache.
+     */
+    double getHitRate() {
+        final long hits = _hits.sum();
+        final long lookups = hits + _misses.sum();
+        return lookups > 0 ? (double)hits/lookups : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return format("size=%d, hits=%d, misses=%d, hit rate=%1.3f, collisions=%d, evictions=%d",
+                        size(), getHits(), getMisses(), getHitRate(), getCollisions(), getEvictions());
+    }
+
+    private static final class Entry {
+        final float[] data;
+        final double fitness;
+        final int epoch;
+
+        Entry(final float[] data, final double fitness, final int epoch) {
+            this.data = data;
+            this.fitness = fitness;
+            this.epoch = epoch;
+        }
+
+        boolean matches(final PolygonChromosome chromosome) {
+            int index = 0;
+            for (int i = 0, n = chromosome.length(); i < n; ++i) {
+                final Polygon polygon = chromosome.getGene(i).getAllele();
+                final int size = Polygon.size(polygon.length());
+                if (index + size > data.length) {
+                    return false;
+                }
+                for (int j = 0; j < size; ++j) {
+                    if (Float.floatToIntBits(polygon.get(j)) != Float.floatToIntBits(data[index++])) {
+                        return false;
+                    }
+                }
+            }
+
+            return index == data.length;
+        }
+    }
+
+    private final class Segment {
+        private final Map<Long, Entry> _entries;
+
+        Segment(final int capacity) {
+            _entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Long, Entry> eldest) {
+                    if (size() > capacity) {
+                        _evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Entry get(final long hash) {
+            return _entries.get(hash);
+        }
+
+        synchronized void put(final long hash, final Entry entry) {
+            _entries.put(hash, entry);
+        }
+
+        synchronized void clear() {
+            _entries.clear();
+        }
+
+        synchronized int size() {
+            return _entries.size();
+        }
+    }
+
+}
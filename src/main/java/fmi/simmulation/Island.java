@@ -0,0 +1,108 @@
+package fmi.simmulation;
+
+import io.jenetics.Genotype;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionResult;
+import io.jenetics.engine.EvolutionStart;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A sub-population of the island model. Every island evolves on its own
+ * thread and receives the best individuals of its neighbour, or of a remote
+ * node, through a lock-free migration queue.
+ */
+final class Island {
+
+    private final int _index;
+    private final Queue<Genotype<PolygonGene>> _immigrants = new ConcurrentLinkedQueue<>();
+    private final Metrics.Counter _immigrantCount;
+
+    private volatile EvolutionResult<PolygonGene, Double> _result;
+
+    /**
+     * @param immigrantCount the counter of the individuals received by the
+     *        islands of the worker
+     */
+    Island(final int index, final Metrics.Counter immigrantCount) {
+        _index = index;
+        _immigrantCount = immigrantCount;
+    }
+
+    int index() {
+        return _index;
+    }
+
+    /**
+     * Return the latest evolution result of this island, or {@code null} if
+     * it hasn't evolved yet.
+     */
+    EvolutionResult<PolygonGene, Double> result() {
+        return _result;
+    }
+
+    void result(final EvolutionResult<PolygonGene, Double> result) {
+        _result = result;
+    }
+
+    /**
+     * Send the given number of best individuals of the given result to this
+     * island. May be called from any thread.
+     */
+    void migrate(final EvolutionResult<PolygonGene, Double> result, final int count) {
+        best(result, count).forEach(_immigrants::offer);
+    }
+
+    /**
+     * Send the given individual to this island. May be called from any
+     * thread.
+     */
+    void migrate(final Genotype<PolygonGene> immigrant) {
+        _immigrants.offer(immigrant);
+    }
+
+    /**
+     * Return the given number of best genotypes of the given result.
+     */
+    static ISeq<Genotype<PolygonGene>> best(final EvolutionResult<PolygonGene, Double> result, final int count) {
+        return result.getPopulation().stream()
+                        .sorted(Comparator.reverseOrder())
+                        .limit(count)
+                        .map(Phenotype::getGenotype)
+                        .collect(ISeq.toISeq());
+    }
+
+    /**
+     * Return the start of the generation following the given result. The
+     * received individuals replace the worst ones of the population.
+     */
+    EvolutionStart<PolygonGene, Double> next(final EvolutionResult<PolygonGene, Double> result) {
+        final long generation = result.getGeneration() + 1;
+        final ISeq<Phenotype<PolygonGene, Double>> population = result.getPopulation();
+
+        final List<Genotype<PolygonGene>> immigrants = new ArrayList<>();
+        for (Genotype<PolygonGene> gt = _immigrants.poll(); gt != null; gt = _immigrants.poll()) {
+            immigrants.add(gt);
+        }
+        if (immigrants.isEmpty()) {
+            return EvolutionStart.of(population, generation);
+        }
+
+        // The immigrants are evaluated and aged as if they were born on this island.
+        final MSeq<Phenotype<PolygonGene, Double>> next = population.copy();
+        next.sort(Comparator.naturalOrder());
+        for (int i = 0, n = Math.min(immigrants.size(), next.size()); i < n; ++i) {
+            next.set(i, next.get(i).newInstance(immigrants.get(i), generation));
+        }
+        _immigrantCount.add(Math.min(immigrants.size(), next.size()));
+
+        return EvolutionStart.of(next.toISeq(), generation);
+    }
+
+}
@@ -0,0 +1,308 @@
+package fmi.simmulation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * The live metrics of one evolution: counters, histograms of durations,
+ * gauges and rates. All metrics can be updated from any thread without
+ * locking. Rates are calculated from a total by {@link #sample()}, which is
+ * called once per generation and updates them at most once per second.
+ *
+ * The metrics are read by {@link #snapshot()}, as flat map of names to
+ * values, or one by one with {@link #value(String)}, which only evaluates
+ * the requested metric; see {@link MetricsExporter} for their export
+ * through JMX and HTTP.
+ */
+final class Metrics {
+
+    private static final long RATE_INTERVAL = 1_000_000_000L;
+    private static final String[] HISTOGRAM_SUFFIXES = {"_count", "_mean_ms", "_p50_ms", "_p99_ms", "_max_ms"};
+    private static final AllocatedBytes ALLOCATED_BYTES = new AllocatedBytes();
+
+    // Name -> counter, histogram, gauge or rate, in registration order.
+    private final Map<String, Object> _metrics = new ConcurrentHashMap<>();
+    private final List<String> _names = new ArrayList<>();
+    private volatile long _sampleTime = System.nanoTime();
+
+    /**
+     * Return the counter of the given name, which is created if necessary.
+     */
+    Counter counter(final String name) {
+        return (Counter)register(name, new Counter());
+    }
+
+    /**
+     * Return the histogram of the given name, which is created if necessary.
+     * The histogram records durations in nanoseconds and reports them in
+     * milliseconds.
+     */
+    Histogram histogram(final String name) {
+        return (Histogram)register(name, new Histogram());
+    }
+
+    /**
+     * Register a gauge, which reports the current value of the given
+     * supplier.
+     */
+    void gauge(final String name, final DoubleSupplier value) {
+        register(name, value);
+    }
+
+    /**
+     * Register a rate, which reports the change per second of the given
+     * total.
+     */
+    void rate(final String name, final LongSupplier total) {
+        register(name, new Rate(total));
+    }
+
+    private synchronized Object register(final String name, final Object metric) {
+        final Object existing = _metrics.putIfAbsent(name, metric);
+        if (existing != null) {
+            if (existing.getClass() != metric.getClass()) {
+                throw new IllegalArgumentException(String.format("Metric '%s' is already registered.", name));
+            }
+            return existing;
+        }
+
+        _names.add(name);
+        return metric;
+    }
+
+    /**
+     * Update the rates, if the last update is at least one second ago. Must
+     * not be called concurrently.
+     */
+    void sample() {
+        final long now = System.nanoTime();
+        final long elapsed = now - _sampleTime;
+        if (elapsed >= RATE_INTERVAL) {
+            _sampleTime = now;
+            for (Object metric : _metrics.values()) {
+                if (metric instanceof Rate) {
+                    ((Rate)metric).sample(elapsed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the current values of all metrics. A histogram is reported by
+     * its count, mean, 50th and 99th percentile and maximum, with the suffixes
+     * {@code _count}, {@code _mean_ms}, {@code _p50_ms}, {@code _p99_ms} and
+     * {@code _max_ms}.
+     */
+    Map<String, Double> snapshot() {
+        final Map<String, Double> values = new LinkedHashMap<>();
+        for (String name : registered()) {
+            final Object metric = _metrics.get(name);
+            if (metric instanceof Histogram) {
+                ((Histogram)metric).snapshot(name, values);
+            } else {
+                values.put(name, value(metric));
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Return the names of all values of the {@link #snapshot()}, without
+     * evaluating the metrics.
+     */
+    List<String> names() {
+        final List<String> names = new ArrayList<>();
+        for (String name : registered()) {
+            if (_metrics.get(name) instanceof Histogram) {
+                for (String suffix : HISTOGRAM_SUFFIXES) {
+                    names.add(name + suffix);
+                }
+            } else {
+                names.add(name);
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * Return the current value of the given name of the {@link #snapshot()},
+     * or {@code null} if there is no such value. Only the requested metric
+     * is evaluated.
+     */
+    Double value(final String name) {
+        final Object metric = _metrics.get(name);
+        if (metric != null && !(metric instanceof Histogram)) {
+            return value(metric);
+        }
+
+        for (String suffix : HISTOGRAM_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                final Object histogram = _metrics.get(name.substring(0, name.length() - suffix.length()));
+                if (histogram instanceof Histogram) {
+                    final Map<String, Double> values = new LinkedHashMap<>();
+                    ((Histogram)histogram).snapshot("", values);
+                    return values.get(suffix);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private synchronized List<String> registered() {
+        return new ArrayList<>(_names);
+    }
+
+    private static double value(final Object metric) {
+        if (metric instanceof Counter) {
+            return ((Counter)metric).get();
+        } else if (metric instanceof Rate) {
+            return ((Rate)metric)._value;
+        } else {
+            return ((DoubleSupplier)metric).getAsDouble();
+        }
+    }
+
+    /**
+     * Return the number of bytes allocated by the threads of the JVM, or zero
+     * if the JVM doesn't measure allocations. The total never decreases: the
+     * bytes of a thread which has ended are kept, as far as they have been
+     * seen by a previous call.
+     */
+    static long allocatedBytes() {
+        return ALLOCATED_BYTES.get();
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    static final class Counter {
+        private final LongAdder _count = new LongAdder();
+
+        void increment() {
+            _count.increment();
+        }
+
+        void add(final long count) {
+            _count.add(count);
+        }
+
+        long get() {
+            return _count.sum();
+        }
+    }
+
+    /**
+     * The distribution of durations, in power of two buckets of nanoseconds.
+     * Percentiles are reported as the upper bound of their bucket, and are
+     * therefore accurate within a factor of two.
+     */
+    static final class Histogram {
+        private final AtomicLongArray _buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder _count = new LongAdder();
+        private final LongAdder _sum = new LongAdder();
+        private final LongAccumulator _max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Record the given duration in nanoseconds.
+         */
+        void record(final long nanos) {
+            final long value = Math.max(0, nanos);
+            _buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value) - (value > 0 ? 1 : 0));
+            _count.increment();
+            _sum.add(value);
+            _max.accumulate(value);
+        }
+
+        private void snapshot(final String name, final Map<String, Double> values) {
+            final long count = _count.sum();
+            values.put(name + "_count", (double)count);
+            values.put(name + "_mean_ms", count > 0 ? _sum.sum()/(count*1e6) : 0.0);
+            values.put(name + "_p50_ms", percentile(0.5, count)/1e6);
+            values.put(name + "_p99_ms", percentile(0.99, count)/1e6);
+            values.put(name + "_max_ms", _max.get()/1e6);
+        }
+
+        private double percentile(final double p, final long count) {
+            final long rank = (long)Math.ceil(p*count);
+            long seen = 0;
+            for (int i = 0; i < _buckets.length() && count > 0; ++i) {
+                seen += _buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(i < Long.SIZE - 1 ? (1L << (i + 1)) : Long.MAX_VALUE, _max.get());
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Sums the allocated bytes of the live threads, plus the last seen bytes
+     * of the threads which have ended since.
+     */
+    private static final class AllocatedBytes {
+        private Map<Long, Long> _threads = new HashMap<>();
+        private long _ended = 0;
+
+        synchronized long get() {
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+                return 0;
+            }
+            final com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean)threads;
+            if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) {
+                return 0;
+            }
+
+            final long[] ids = sun.getAllThreadIds();
+            final long[] allocated = sun.getThreadAllocatedBytes(ids);
+            final Map<Long, Long> live = new HashMap<>();
+            long bytes = 0;
+            for (int i = 0; i < ids.length; ++i) {
+                if (allocated[i] >= 0) {
+                    live.put(ids[i], allocated[i]);
+                    bytes += allocated[i];
+                }
+            }
+            for (Map.Entry<Long, Long> thread : _threads.entrySet()) {
+                if (!live.containsKey(thread.getKey())) {
+                    _ended += thread.getValue();
+                }
+            }
+            _threads = live;
+
+            return _ended + bytes;
+        }
+    }
+
+    private static final class Rate {
+        private final LongSupplier _total;
+        private long _last;
+        private volatile double _value = 0;
+
+        Rate(final LongSupplier total) {
+            _total = total;
+            _last = total.getAsLong();
+        }
+
+        void sample(final long elapsedNanos) {
+            final long total = _total.getAsLong();
+            _value = (total - _last)*1e9/elapsedNanos;
+            _last = total;
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+package fmi.simmulation;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static java.lang.String.format;
+
+/**
+ * Exports the {@link Metrics} of running evolutions. Every registered
+ * evolution is published as MBean {@code fmi.simmulation:type=Evolution,name=<name>}
+ * of the platform MBean server, with one read-only attribute per metric.
+ * If enabled, the metrics of all evolutions are also served as plain text,
+ * one {@code metric{evolution="<name>"} value} per line, by an HTTP server
+ * bound to the loopback address:
+ * <pre>
+ * curl http://localhost:9090/metrics
+ * </pre>
+ */
+final class MetricsExporter implements Closeable {
+
+    private static final String DOMAIN = "fmi.simmulation";
+    private static final String PATH = "/metrics";
+
+    private final Map<String, Metrics> _metrics = new ConcurrentSkipListMap<>();
+    private final MBeanServer _server = ManagementFactory.getPlatformMBeanServer();
+    private final HttpServer _http;
+
+    private MetricsExporter(final HttpServer http) {
+        _http = http;
+    }
+
+    /**
+     * Return the port of the HTTP server, or -1 if it is disabled.
+     */
+    int getPort() {
+        return _http != null ? _http.getAddress().getPort() : -1;
+    }
+
+    /**
+     * Publish the metrics of the evolution with the given name. An evolution
+     * registered before with the same name is replaced.
+     */
+    void register(final String name, final Metrics metrics) {
+        unregister(name);
+        _metrics.put(name, metrics);
+        try {
+            _server.registerMBean(new MetricsMBean(metrics), objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException(format("Can't register the metrics of '%s'.", name), e);
+        }
+    }
+
+    /**
+     * Withdraw the metrics of the evolution with the given name.
+     */
+    void unregister(final String name) {
+        if (_metrics.remove(name) != null) {
+            try {
+                _server.unregisterMBean(objectName(name));
+            } catch (JMException e) {
+                // Already unregistered through JMX.
+            }
+        }
+    }
+
+    private static ObjectName objectName(final String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Evolution,name=" + ObjectName.quote(name));
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Metrics> metrics : _metrics.entrySet()) {
+            final String label = metrics.getKey().replace("\\", "\\\\").replace("\"", "\\\"");
+            for (Map.Entry<String, Double> value : metrics.getValue().snapshot().entrySet()) {
+                text.append(format(Locale.ROOT, "%s{evolution=\"%s\"} %s\n", value.getKey(), label, value.getValue()));
+            }
+        }
+
+        final byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Unregister all evolutions and stop the HTTP server.
+     */
+    @Override
+    public void close() {
+        _metrics.keySet().forEach(this::unregister);
+        if (_http != null) {
+            _http.stop(0);
+        }
+    }
+
+    /**
+     * Create an exporter, which serves the metrics on the given HTTP port of
+     * the loopback address.
+     *
+     * @param port the HTTP port, zero selects a free port and a negative
+     *        value disables the HTTP server
+     */
+    static MetricsExporter open(final int port) throws IOException {
+        if (port < 0) {
+            return new MetricsExporter(null);
+        }
+
+        final HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        final MetricsExporter exporter = new MetricsExporter(http);
+        http.createContext(PATH, exporter::handle);
+        http.start();
+        return exporter;
+    }
+
+    /**
+     * Publishes the current values of the metrics as read-only attributes.
+     * Only the requested attributes are evaluated.
+     */
+    private static final class MetricsMBean implements DynamicMBean {
+        private final Metrics _metrics;
+
+        MetricsMBean(final Metrics metrics) {
+            _metrics = metrics;
+        }
+
+        @Override
+        public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+            final Double value = _metrics.value(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(final String[] attributes) {
+            final AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                final Double value = _metrics.value(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(format("Attribute '%s' is read-only.", attribute.getName()));
+        }
+
+        @Override
+        public AttributeList setAttributes(final AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(final String action, final Object[] params, final String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(action));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            final MBeanAttributeInfo[] attributes = _metrics.names().stream()
+                            .map(name -> new MBeanAttributeInfo(name, Double.class.getName(), name, true, false, false))
+                            .toArray(MBeanAttributeInfo[]::new);
+
+            return new MBeanInfo(getClass().getName(), "Evolution metrics", attributes, null, null, null);
+        }
+    }
+
+}
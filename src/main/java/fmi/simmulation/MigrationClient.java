@@ -0,0 +1,127 @@
+package fmi.simmulation;
+
+import io.jenetics.Genotype;
+import io.jenetics.util.ISeq;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The connection of an evolution node to the {@link MigrationCoordinator}.
+ * Migrants and status reports are written by the evolution thread, while
+ * the received migrants are read by a background thread and queued until
+ * the evolution takes them.
+ */
+final class MigrationClient implements Closeable {
+
+    private final SocketChannel _channel;
+    private final Queue<Genotype<PolygonGene>> _immigrants = new ConcurrentLinkedQueue<>();
+    private final LongAdder _sent = new LongAdder();
+    private final LongAdder _received = new LongAdder();
+    private final Thread _reader;
+
+    private volatile IOException _error;
+
+    private MigrationClient(final SocketChannel channel) {
+        _channel = channel;
+        _reader = new Thread(this::read, "migration-reader");
+        _reader.setDaemon(true);
+    }
+
+    /**
+     * Send the given migrants to the coordinator.
+     */
+    void send(final ISeq<Genotype<PolygonGene>> migrants) throws IOException {
+        if (!migrants.isEmpty()) {
+            write(MigrationProtocol.migrants(migrants));
+            _sent.add(migrants.size());
+        }
+    }
+
+    /**
+     * Report the state of the evolution to the coordinator.
+     */
+    void status(final long generation, final double bestFitness, final long evaluations) throws IOException {
+        write(MigrationProtocol.status(generation, bestFitness, evaluations));
+    }
+
+    private synchronized void write(final ByteBuffer frame) throws IOException {
+        final IOException error = _error;
+        if (error != null) {
+            throw error;
+        }
+        while (frame.hasRemaining()) {
+            _channel.write(frame);
+        }
+    }
+
+    /**
+     * Return the next received migrant, or {@code null} if there is none.
+     */
+    Genotype<PolygonGene> poll() {
+        return _immigrants.poll();
+    }
+
+    long getSent() {
+        return _sent.sum();
+    }
+
+    long getReceived() {
+        return _received.sum();
+    }
+
+    private void read() {
+        final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        try {
+            while (true) {
+                length.clear();
+                readFully(length);
+
+                final ByteBuffer frame = ByteBuffer.allocate(MigrationProtocol.checkLength(length.getInt(0)));
+                readFully(frame);
+                if (frame.get(0) == MigrationProtocol.MIGRANTS) {
+                    frame.position(1);
+                    final ISeq<Genotype<PolygonGene>> migrants = MigrationProtocol.readMigrants(frame);
+                    migrants.forEach(_immigrants::offer);
+                    _received.add(migrants.size());
+                }
+            }
+        } catch (IOException e) {
+            _error = e;
+        }
+    }
+
+    private void readFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (_channel.read(buffer) < 0) {
+                throw new EOFException("Coordinator disconnected.");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+    /**
+     * Connect to the coordinator listening on the given address.
+     */
+    static MigrationClient connect(final InetSocketAddress address) throws IOException {
+        final SocketChannel channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+
+        final MigrationClient client = new MigrationClient(channel);
+        client._reader.start();
+        return client;
+    }
+
+}
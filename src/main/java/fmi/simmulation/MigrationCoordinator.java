@@ -0,0 +1,331 @@
+package fmi.simmulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+
+import static java.lang.String.format;
+
+/**
+ * Connects the islands of evolutions running in different processes. Every
+ * node is an {@link EvolvingImagesWorker} with a {@link MigrationClient};
+ * the coordinator forwards the migrants of a node to the next node, in the
+ * order the nodes have connected, and gathers the status of the nodes.
+ *
+ * The coordinator runs a single non-blocking selector thread. At most
+ * {@link #MAX_PENDING_FRAMES} migrant frames are queued for a node; the
+ * migrants for a node which doesn't keep up are dropped.
+ */
+public final class MigrationCoordinator implements Closeable {
+
+    /**
+     * The maximal number of migrant frames waiting to be sent to one node.
+     */
+    static final int MAX_PENDING_FRAMES = 8;
+
+    private final ServerSocketChannel _server;
+    private final Selector _selector;
+    private final Thread _thread;
+
+    // Only accessed by the selector thread.
+    private final List<Node> _nodes = new ArrayList<>();
+
+    private volatile Status[] _statuses = new Status[0];
+    private volatile long _forwarded = 0;
+    private volatile long _dropped = 0;
+    private volatile boolean _closed = false;
+
+    private MigrationCoordinator(final ServerSocketChannel server, final Selector selector) {
+        _server = server;
+        _selector = selector;
+        _thread = new Thread(this::select, "migration-coordinator");
+        _thread.setDaemon(true);
+    }
+
+    /**
+     * Return the port the coordinator listens on.
+     */
+    public int getPort() {
+        return _server.socket().getLocalPort();
+    }
+
+    /**
+     * Return the number of connected nodes.
+     */
+    public int getNodeCount() {
+        return _statuses.length;
+    }
+
+    /**
+     * Return the best fitness reported by any node, or {@code NaN} if no
+     * node has reported yet.
+     */
+    public double getBestFitness() {
+        double best = Double.NaN;
+        for (Status status : _statuses) {
+            if (status != null && !(status.bestFitness <= best)) {
+                best = status.bestFitness;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Return the summed fitness evaluations per second of all nodes.
+     */
+    public double getThroughput() {
+        double throughput = 0;
+        for (Status status : _statuses) {
+            if (status != null) {
+                throughput += status.throughput;
+            }
+        }
+
+        return throughput;
+    }
+
+    /**
+     * Return the number of forwarded migrant frames.
+     */
+    public long getForwarded() {
+        return _forwarded;
+    }
+
+    /**
+     * Return the number of migrant frames dropped because the target node
+     * had too many pending frames.
+     */
+    public long getDropped() {
+        return _dropped;
+    }
+
+    @Override
+    public String toString() {
+        return format("nodes=%d, best fitness=%1.4f, throughput=%1.1f evaluations/s, forwarded=%d, dropped=%d",
+                        getNodeCount(), getBestFitness(), getThroughput(), getForwarded(), getDropped());
+    }
+
+    private void select() {
+        try {
+            while (!_closed) {
+                _selector.select();
+                final Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            final Node node = (Node)key.attachment();
+                            if (key.isReadable()) {
+                                read(node);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(node);
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // A failing node is disconnected, without stopping the others.
+                        if (key.attachment() != null) {
+                            disconnect((Node)key.attachment());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // The coordinator has been closed.
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = _server.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            final Node node = new Node(channel);
+            node.key = channel.register(_selector, SelectionKey.OP_READ, node);
+            _nodes.add(node);
+            publish();
+        }
+    }
+
+    private void read(final Node node) throws IOException {
+        if (node.channel.read(node.input) < 0) {
+            throw new IOException("Node disconnected.");
+        }
+
+        node.input.flip();
+        while (node.input.remaining() >= Integer.BYTES) {
+            final int length = MigrationProtocol.checkLength(node.input.getInt(node.input.position()));
+            if (node.input.remaining() < Integer.BYTES + length) {
+                if (node.input.capacity() < Integer.BYTES + length) {
+                    final ByteBuffer input = ByteBuffer.allocate(Integer.BYTES + length);
+                    input.put(node.input);
+                    input.flip();
+                    node.input = input;
+                }
+                break;
+            }
+
+            final ByteBuffer frame = node.input.slice();
+            frame.limit(Integer.BYTES + length);
+            node.input.position(node.input.position() + Integer.BYTES + length);
+            received(node, frame);
+        }
+        node.input.compact();
+    }
+
+    private void received(final Node node, final ByteBuffer frame) throws IOException {
+        final byte type = frame.get(Integer.BYTES);
+        if (type == MigrationProtocol.MIGRANTS && _nodes.size() > 1) {
+            final Node target = _nodes.get((_nodes.indexOf(node) + 1)%_nodes.size());
+            if (target.output.size() >= MAX_PENDING_FRAMES) {
+                _dropped++;
+                return;
+            }
+
+            final ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+            copy.put(frame);
+            copy.flip();
+
+            target.output.add(copy);
+            target.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            _forwarded++;
+        } else if (type == MigrationProtocol.STATUS) {
+            if (frame.remaining() != Integer.BYTES + MigrationProtocol.STATUS_LENGTH) {
+                throw new IOException(format("Invalid status frame length: %d.", frame.remaining() - Integer.BYTES));
+            }
+            frame.position(Integer.BYTES + 1);
+            node.status(frame.getLong(), frame.getDouble(), frame.getLong());
+            publish();
+        }
+    }
+
+    private void write(final Node node) throws IOException {
+        while (!node.output.isEmpty()) {
+            final ByteBuffer buffer = node.output.peek();
+            node.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            node.output.poll();
+        }
+        node.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void disconnect(final Node node) {
+        node.key.cancel();
+        try {
+            node.channel.close();
+        } catch (IOException e) {
+            // Already disconnected.
+        }
+        _nodes.remove(node);
+        publish();
+    }
+
+    private void publish() {
+        final Status[] statuses = new Status[_nodes.size()];
+        for (int i = 0; i < statuses.length; ++i) {
+            statuses[i] = _nodes.get(i).status;
+        }
+        _statuses = statuses;
+    }
+
+    /**
+     * Stop the coordinator and disconnect all nodes. The selector thread is
+     * joined before the nodes are closed.
+     */
+    @Override
+    public void close() throws IOException {
+        _closed = true;
+        _selector.wakeup();
+
+        boolean interrupted = false;
+        while (_thread.isAlive()) {
+            try {
+                _thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        _selector.close();
+        _server.close();
+        for (Node node : _nodes) {
+            node.channel.close();
+        }
+    }
+
+    /**
+     * Start a coordinator listening on the given address. A port of zero
+     * selects a free port.
+     */
+    public static MigrationCoordinator open(final InetSocketAddress address) throws IOException {
+        final Selector selector = Selector.open();
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        final MigrationCoordinator coordinator = new MigrationCoordinator(server, selector);
+        coordinator._thread.start();
+        return coordinator;
+    }
+
+    private static final class Node {
+        final SocketChannel channel;
+        final Queue<ByteBuffer> output = new ArrayDeque<>();
+        ByteBuffer input = ByteBuffer.allocate(64*1024);
+        SelectionKey key;
+        Status status;
+
+        Node(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void status(final long generation, final double bestFitness, final long evaluations) {
+            final long now = System.nanoTime();
+            final Status last = status;
+            final double throughput = last != null && now > last.time
+                            ? (evaluations - last.evaluations)/((now - last.time)/1e9)
+                            : 0.0;
+            status = new Status(generation, bestFitness, evaluations, throughput, now);
+        }
+    }
+
+    private static final class Status {
+        final long generation;
+        final double bestFitness;
+        final long evaluations;
+        final double throughput;
+        final long time;
+
+        Status(final long generation, final double bestFitness, final long evaluations, final double throughput, final long time) {
+            this.generation = generation;
+            this.bestFitness = bestFitness;
+            this.evaluations = evaluations;
+            this.throughput = throughput;
+            this.time = time;
+        }
+    }
+
+}
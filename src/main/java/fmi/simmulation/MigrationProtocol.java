@@ -0,0 +1,125 @@
+package fmi.simmulation;
+
+import io.jenetics.Genotype;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static java.lang.String.format;
+
+/**
+ * The binary frames exchanged between the {@link MigrationCoordinator} and
+ * its nodes. Every frame starts with its length (int, excluding the length
+ * itself) and its type (byte), all values are big endian.
+ * <pre>
+ * MIGRANTS: int count, int polygon count, int polygon length,
+ *           float polygon data, count*polygon count*(4 + 2*polygon length)
+ * STATUS:   long generation, double best fitness, long evaluations
+ * </pre>
+ * Nodes send both frame types; the coordinator forwards the migrants
+ * unchanged to the next node of its ring.
+ */
+final class MigrationProtocol {
+
+    static final byte MIGRANTS = 1;
+    static final byte STATUS = 2;
+
+    /**
+     * Upper bound of a frame length, which protects against corrupt frames.
+     */
+    static final int MAX_FRAME_LENGTH = 64*1024*1024;
+
+    private static final int HEADER = Integer.BYTES + 1;
+
+    /**
+     * The length of every STATUS frame, excluding the length itself.
+     */
+    static final int STATUS_LENGTH = 1 + 2*Long.BYTES + Double.BYTES;
+
+    private MigrationProtocol() {
+    }
+
+    /**
+     * Return the MIGRANTS frame of the given genotypes, ready to be written.
+     */
+    static ByteBuffer migrants(final ISeq<Genotype<PolygonGene>> migrants) {
+        final PolygonChromosome first = (PolygonChromosome)migrants.get(0).getChromosome();
+        final int polygonCount = first.length();
+        final int polygonLength = first.getGene().getAllele().length();
+        final int floats = polygonCount*Polygon.size(polygonLength);
+
+        final ByteBuffer frame = ByteBuffer.allocate(HEADER + 3*Integer.BYTES + migrants.size()*floats*Float.BYTES);
+        frame.putInt(frame.capacity() - Integer.BYTES)
+                        .put(MIGRANTS)
+                        .putInt(migrants.size())
+                        .putInt(polygonCount)
+                        .putInt(polygonLength);
+
+        final FloatBuffer data = frame.asFloatBuffer();
+        for (Genotype<PolygonGene> migrant : migrants) {
+            data.put(((PolygonChromosome)migrant.getChromosome()).toArray());
+        }
+        frame.position(frame.limit());
+        frame.flip();
+
+        return frame;
+    }
+
+    /**
+     * Return the STATUS frame with the given values, ready to be written.
+     */
+    static ByteBuffer status(final long generation, final double bestFitness, final long evaluations) {
+        final ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + STATUS_LENGTH);
+        frame.putInt(frame.capacity() - Integer.BYTES)
+                        .put(STATUS)
+                        .putLong(generation)
+                        .putDouble(bestFitness)
+                        .putLong(evaluations);
+        frame.flip();
+
+        return frame;
+    }
+
+    /**
+     * Decode the payload of a MIGRANTS frame, positioned after the type.
+     */
+    static ISeq<Genotype<PolygonGene>> readMigrants(final ByteBuffer payload) throws IOException {
+        final int count = payload.getInt();
+        final int polygonCount = payload.getInt();
+        final int polygonLength = payload.getInt();
+
+        final int floats = polygonCount*Polygon.size(polygonLength);
+        if (count < 0 || polygonCount <= 0 || polygonLength <= 0 ||
+                        payload.remaining() != (long)count*floats*Float.BYTES)
+        {
+            throw new IOException(format(
+                            "Invalid migrants frame: count=%d, polygon count=%d, polygon length=%d, bytes=%d.",
+                            count, polygonCount, polygonLength, payload.remaining()));
+        }
+
+        final FloatBuffer data = payload.asFloatBuffer();
+        final MSeq<Genotype<PolygonGene>> migrants = MSeq.ofLength(count);
+        for (int i = 0; i < count; ++i) {
+            final float[] chromosome = new float[floats];
+            data.get(chromosome);
+            migrants.set(i, Genotype.of(PolygonChromosome.of(chromosome, polygonCount, polygonLength)));
+        }
+
+        return migrants.toISeq();
+    }
+
+    /**
+     * Check the length of a received frame.
+     */
+    static int checkLength(final int length) throws IOException {
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException(format("Invalid frame length: %d.", length));
+        }
+
+        return length;
+    }
+
+}
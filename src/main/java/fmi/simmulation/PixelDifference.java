@@ -0,0 +1,93 @@
+package fmi.simmulation;
+
+/**
+ * Sums the absolute color difference of packed ARGB pixel arrays. The alpha
+ * channel is ignored.
+ *
+ * The kernels have a branch-free loop body and accumulate the partial sums
+ * in an {@code int}, which gives C2 the chance to auto-vectorize them.
+ * Whether a loop is actually vectorized depends on the JVM and the CPU; see
+ * the {@code PixelDifferenceBenchmark} of the {@code jmh} profile.
+ */
+final class PixelDifference {
+
+    /**
+     * Number of pixels whose difference, at most {@code 3*255} each, can be
+     * summed up in an {@code int} without overflow.
+     */
+    private static final int CHUNK = 1 << 20;
+
+    private PixelDifference() {
+    }
+
+    /**
+     * Return the summed absolute difference of the red, green and blue
+     * channels of the pixels in the range {@code [from, to)}.
+     */
+    static long sum(final int[] test, final int[] ref, final int from, final int to) {
+        long difference = 0;
+        for (int start = from; start < to; start += CHUNK) {
+            difference += chunk(test, ref, start, Math.min(to, start + CHUNK));
+        }
+
+        return difference;
+    }
+
+    /**
+     * Return the summed absolute difference of the red, green and blue
+     * channels of {@code length} pixels, starting at {@code testFrom} in the
+     * test and at {@code refFrom} in the reference pixels.
+     */
+    static long sum(final int[] test, final int testFrom, final int[] ref, final int refFrom, final int length) {
+        long difference = 0;
+        for (int start = 0; start < length; start += CHUNK) {
+            difference += chunk(test, testFrom + start, ref, refFrom + start, Math.min(length - start, CHUNK));
+        }
+
+        return difference;
+    }
+
+    private static int chunk(final int[] test, final int[] ref, final int from, final int to) {
+        int difference = 0;
+        for (int i = from; i < to; ++i) {
+            final int a = test[i];
+            final int b = ref[i];
+
+            difference += Math.abs(((a >>> 16) & 0xFF) - ((b >>> 16) & 0xFF)) +
+                            Math.abs(((a >>> 8) & 0xFF) - ((b >>> 8) & 0xFF)) +
+                            Math.abs((a & 0xFF) - (b & 0xFF));
+        }
+
+        return difference;
+    }
+
+    private static int chunk(final int[] test, final int testFrom, final int[] ref, final int refFrom, final int length) {
+        int difference = 0;
+        for (int i = 0; i < length; ++i) {
+            final int a = test[testFrom + i];
+            final int b = ref[refFrom + i];
+
+            difference += Math.abs(((a >>> 16) & 0xFF) - ((b >>> 16) & 0xFF)) +
+                            Math.abs(((a >>> 8) & 0xFF) - ((b >>> 8) & 0xFF)) +
+                            Math.abs((a & 0xFF) - (b & 0xFF));
+        }
+
+        return difference;
+    }
+
+    /**
+     * Return the summed absolute difference of the pixels within the rectangle
+     * {@code [x0, x1)x[y0, y1)} of two images with the given width.
+     */
+    static long sum(final int[] test, final int[] ref, final int width,
+                    final int x0, final int y0, final int x1, final int y1)
+    {
+        long difference = 0;
+        for (int y = y0; y < y1; ++y) {
+            difference += sum(test, ref, y*width + x0, y*width + x1);
+        }
+
+        return difference;
+    }
+
+}
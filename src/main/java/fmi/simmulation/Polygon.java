@@ -1,7 +1,6 @@
 package  fmi.simmulation;
 
 import io.jenetics.internal.util.require;
-import io.jenetics.util.Mean;
 import io.jenetics.util.RandomRegistry;
 
 import java.awt.*;
@@ -23,15 +22,20 @@ import static java.lang.String.format;
  * ...
  * N  => last y
  * size = 4 + 2*polygon-length
+ *
+ * The data of a Polygon may be a range of a larger array, which is shared by
+ * all polygons of a chromosome. The data is never modified after the
+ * Polygon has been created.
  */
-final class Polygon implements Mean<Polygon> {
+final class Polygon {
 
     private final float[] _data;
+    private final int _offset;
     private final int _length;
 
-    private Polygon(final int length) {
-        final int polygonSize = 4 + 2*require.positive(length);
-        _data = new float[polygonSize];
+    private Polygon(final float[] data, final int offset, final int length) {
+        _data = data;
+        _offset = offset;
         _length = length;
     }
 
@@ -39,76 +43,163 @@ final class Polygon implements Mean<Polygon> {
         return _length;
     }
 
-    public Polygon mean(final Polygon other) {
-        if (other.length() != length()) {
-            throw new IllegalArgumentException(format("Polygon must have the same length: %d != %d", length(), other.length()));
-        }
+    /**
+     * Return the number of floats of a Polygon with the given length.
+     */
+    static int size(final int length) {
+        return 4 + 2*length;
+    }
 
-        final Polygon mean = new Polygon(length());
-        for (int i = length(); --i >= 0;) {
-            mean._data[i] = (_data[i] + other._data[i])*0.5F;
-        }
+    /**
+     * Return the data component with the given index.
+     */
+    float get(final int index) {
+        return _data[_offset + index];
+    }
 
-        return mean;
+    /**
+     * Copy the data of this Polygon to the given array.
+     */
+    void copyTo(final float[] data, final int offset) {
+        System.arraycopy(_data, _offset, data, offset, size(_length));
     }
 
     /**
-     * Return a new mutated Polygon.
-     *
-     * Each component of the Polygon may be mutated according to the specified
-     * mutation rate. In case a component is going to be mutated, its value will
-     * be randomly modified in the range of [-magnitude, +magnitude].
-     *
+     * Return the fill color as packed, non-premultiplied ARGB value. The
+     * rounding is the same as the one of {@link Color#Color(float, float, float, float)}.
      */
-    public Polygon mutate(final float rate, final float magnitude) {
-        final Random random = RandomRegistry.getRandom();
-        final Polygon mutated = new Polygon(length());
-
-        for (int i = 0; i < _data.length; ++i) {
-            if (random.nextFloat() < rate) {
-                mutated._data[i] = clamp(_data[i] + (random.nextFloat()*2F - 1F)*magnitude);
-            } else {
-                mutated._data[i] = _data[i];
-            }
+    int argb() {
+        return (component(get(3)) << 24) |
+                        (component(get(0)) << 16) |
+                        (component(get(1)) << 8) |
+                        component(get(2));
+    }
+
+    private static int component(final float value) {
+        return (int)(value*255 + 0.5F);
+    }
+
+    /**
+     * Return the x-coordinate, within {@code [0, 1]}, of the vertex with the given index.
+     */
+    float x(final int vertex) {
+        return _data[_offset + 4 + vertex*2];
+    }
+
+    /**
+     * Return the y-coordinate, within {@code [0, 1]}, of the vertex with the given index.
+     */
+    float y(final int vertex) {
+        return _data[_offset + 5 + vertex*2];
+    }
+
+    /**
+     * Write the component-wise mean of the given polygons to the given range
+     * of the given array and return the Polygon backed by it. The array must
+     * not be modified afterwards.
+     */
+    static Polygon mean(final Polygon a, final Polygon b, final float[] data, final int offset) {
+        if (a.length() != b.length()) {
+            throw new IllegalArgumentException(format("Polygon must have the same length: %d != %d", a.length(), b.length()));
         }
 
-        return mutated;
+        for (int i = size(a._length); --i >= 0;) {
+            data[offset + i] = (a.get(i) + b.get(i))*0.5F;
+        }
+
+        return of(data, offset, a._length);
+    }
+
+    /**
+     * Return the mutated value of a single component, which is randomly
+     * modified in the range of [-magnitude, +magnitude].
+     */
+    static float mutate(final float value, final float magnitude, final Random random) {
+        return clamp(value + (random.nextFloat()*2F - 1F)*magnitude);
     }
 
     /**
      * Draw the Polygon to the buffer of the given size.
      */
     public void draw(final Graphics2D g, final int width, final int height) {
-        g.setColor(new Color(_data[0], _data[1], _data[2], _data[3]));
+        g.setColor(new Color(get(0), get(1), get(2), get(3)));
 
         final GeneralPath path = new GeneralPath();
-        path.moveTo(_data[4]*width, _data[5]*height);
+        path.moveTo(x(0)*width, y(0)*height);
         for (int j = 1; j < _length; ++j) {
-            path.lineTo(_data[4 + j*2]*width, _data[5 + j*2]*height);
+            path.lineTo(x(j)*width, y(j)*height);
         }
         path.closePath();
         g.fill(path);
     }
 
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0, n = size(_length); i < n; ++i) {
+            hash = 31*hash + Float.floatToIntBits(get(i));
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Polygon) || ((Polygon)obj)._length != _length) {
+            return false;
+        }
+
+        final Polygon other = (Polygon)obj;
+        for (int i = 0, n = size(_length); i < n; ++i) {
+            if (Float.floatToIntBits(get(i)) != Float.floatToIntBits(other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a Polygon, which is backed by the given range of the given
+     * array. The array must not be modified afterwards.
+     */
+    static Polygon of(final float[] data, final int offset, final int length) {
+        require.positive(length);
+        if (offset < 0 || offset + size(length) > data.length) {
+            throw new IndexOutOfBoundsException(format(
+                            "Polygon range [%d, %d) exceeds the data length %d.",
+                            offset, offset + size(length), data.length));
+        }
+
+        return new Polygon(data, offset, length);
+    }
+
     /**
      * Creates a new random Polygon of the given length.
      */
     public static Polygon newRandom(final int length, final Random random) {
         require.positive(length);
-        final Polygon p = new Polygon(length);
+        return newRandom(length, random, new float[size(length)], 0);
+    }
 
-        p._data[0] = random.nextFloat(); // r
-        p._data[1] = random.nextFloat(); // g
-        p._data[2] = random.nextFloat(); // b
-        p._data[3] = max(0.2F, random.nextFloat()*random.nextFloat()); // a
+    /**
+     * Creates a new random Polygon of the given length, whose data is written
+     * to the given range of the given array.
+     */
+    static Polygon newRandom(final int length, final Random random, final float[] data, final int offset) {
+        data[offset] = random.nextFloat(); // r
+        data[offset + 1] = random.nextFloat(); // g
+        data[offset + 2] = random.nextFloat(); // b
+        data[offset + 3] = max(0.2F, random.nextFloat()*random.nextFloat()); // a
 
         float px = 0.5F;
         float py = 0.5F;
         for (int k = 0; k < length; k++) {
-            p._data[4 + 2*k] = px = clamp(px + random.nextFloat() - 0.5F);
-            p._data[5 + 2*k] = py = clamp(py + random.nextFloat() - 0.5F);
+            data[offset + 4 + 2*k] = px = clamp(px + random.nextFloat() - 0.5F);
+            data[offset + 5 + 2*k] = py = clamp(py + random.nextFloat() - 0.5F);
         }
-        return p;
+        return new Polygon(data, offset, length);
     }
 
     private static float clamp(final float a) {
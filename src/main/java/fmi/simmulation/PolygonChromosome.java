@@ -3,6 +3,7 @@ package fmi.simmulation;
 import io.jenetics.AbstractChromosome;
 import io.jenetics.Chromosome;
 import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
 
 import java.awt.*;
 
@@ -12,16 +13,38 @@ import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
 final class PolygonChromosome extends AbstractChromosome<PolygonGene> {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The chromosome this one has been derived from by an alterer. Only kept
+     * until the fitness of this chromosome has been evaluated.
+     *
+     * @see #forgetAncestors(int[])
+     */
+    private transient volatile PolygonChromosome _parent;
+
+    private transient volatile Render _render;
+
+    /**
+     * The latest recognition score of this chromosome or, if it hasn't been
+     * recognized, of its nearest recognized ancestor.
+     */
+    private transient volatile float _recognition = Float.NaN;
+
     public PolygonChromosome(final ISeq<PolygonGene> genes) {
         super(genes);
     }
 
+    private PolygonChromosome(final ISeq<PolygonGene> genes, final PolygonChromosome parent) {
+        super(genes);
+        _parent = parent;
+        _recognition = parent._recognition;
+    }
+
     public PolygonChromosome(final int polygonCount, final int polygonLength) {
         super(PolygonGene.seq(polygonCount, polygonLength));
     }
 
     public Chromosome<PolygonGene> newInstance(final ISeq<PolygonGene> genes) {
-        return new PolygonChromosome(genes);
+        return new PolygonChromosome(genes, this);
     }
 
     public Chromosome<PolygonGene> newInstance() {
@@ -40,4 +63,114 @@ final class PolygonChromosome extends AbstractChromosome<PolygonGene> {
         }
     }
 
+    /**
+     * Return the polygon data of all genes, concatenated in gene order.
+     */
+    float[] toArray() {
+        final int size = Polygon.size(getGene().getAllele().length());
+        final float[] data = new float[length()*size];
+        for (int i = 0, n = length(); i < n; ++i) {
+            getGene(i).getAllele().copyTo(data, i*size);
+        }
+
+        return data;
+    }
+
+    /**
+     * Return a 64 bit hash of the polygon data of all genes. Chromosomes with
+     * equal polygons have equal hashes.
+     */
+    long contentHash() {
+        // FNV-1a over the bits of the polygon components.
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, n = length(); i < n; ++i) {
+            final Polygon polygon = getGene(i).getAllele();
+            for (int j = 0, size = Polygon.size(polygon.length()); j < size; ++j) {
+                hash = (hash ^ Float.floatToIntBits(polygon.get(j)))*0x100000001b3L;
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Return the recognition score of this chromosome or its nearest
+     * recognized ancestor, or {@code NaN} if there is none.
+     */
+    float recognition() {
+        return _recognition;
+    }
+
+    void recognition(final float score) {
+        _recognition = score;
+    }
+
+    /**
+     * Create a chromosome whose genes are views of the given polygon data,
+     * as returned by {@link #toArray()}. The array must not be modified
+     * afterwards.
+     */
+    static PolygonChromosome of(final float[] data, final int polygonCount, final int polygonLength) {
+        final int size = Polygon.size(polygonLength);
+        final MSeq<PolygonGene> genes = MSeq.ofLength(polygonCount);
+        for (int i = 0; i < polygonCount; ++i) {
+            genes.set(i, PolygonGene.of(Polygon.of(data, i*size, polygonLength)));
+        }
+
+        return new PolygonChromosome(genes.toISeq());
+    }
+
+    /**
+     * Return the nearest ancestor of this chromosome, which has been rendered
+     * for the given reference pixels, or {@code null} if there is none.
+     */
+    PolygonChromosome renderedAncestor(final int[] reference) {
+        for (PolygonChromosome ancestor = _parent; ancestor != null; ancestor = ancestor._parent) {
+            if (ancestor.render(reference) != null) {
+                return ancestor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forget the ancestors of this chromosome, once its fitness has been
+     * evaluated. If the chromosome hasn't been rendered for the given
+     * reference pixels, its nearest rendered ancestor is kept for the
+     * incremental rendering of its offspring. A {@code null} reference drops
+     * all ancestors.
+     */
+    void forgetAncestors(final int[] reference) {
+        _parent = reference != null && render(reference) == null ? renderedAncestor(reference) : null;
+    }
+
+    /**
+     * Return the cached rendering of this chromosome for the given reference
+     * pixels, or {@code null} if there is none.
+     */
+    Render render(final int[] reference) {
+        final Render render = _render;
+        return render != null && render.reference == reference ? render : null;
+    }
+
+    void render(final Render render) {
+        _render = render;
+    }
+
+    /**
+     * A rendered chromosome together with its difference to the reference
+     * pixels it has been scored against. The pixels must not be modified.
+     */
+    static final class Render {
+        final int[] reference;
+        final int[] pixels;
+        final long difference;
+
+        Render(final int[] reference, final int[] pixels, final long difference) {
+            this.reference = reference;
+            this.pixels = pixels;
+            this.difference = difference;
+        }
+    }
+
 }
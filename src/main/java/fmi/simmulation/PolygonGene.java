@@ -1,16 +1,19 @@
 package fmi.simmulation;
 
 import io.jenetics.Gene;
+import io.jenetics.internal.util.require;
 import io.jenetics.util.ISeq;
 import io.jenetics.util.MSeq;
-import io.jenetics.util.Mean;
+import io.jenetics.util.RandomRegistry;
+
+import java.util.Random;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Represents a fixed size polygon with its fill color.
  */
-final class PolygonGene implements Gene<Polygon, PolygonGene>, Mean<PolygonGene> {
+final class PolygonGene implements Gene<Polygon, PolygonGene> {
     private final Polygon _polygon;
 
     private PolygonGene(final Polygon polygon) {
@@ -33,14 +36,19 @@ final class PolygonGene implements Gene<Polygon, PolygonGene>, Mean<PolygonGene>
         return of(polygon);
     }
 
-    public PolygonGene mean(final PolygonGene other) {
-        return of(getAllele().mean(other.getAllele()));
-    }
-
+    /**
+     * Create random genes, whose polygons share one data array.
+     */
     static ISeq<PolygonGene> seq(final int polygonCount, final int polygonLength) {
-        return MSeq.<PolygonGene>ofLength(polygonCount)
-                        .fill(() -> of(Polygon.newRandom(polygonLength)))
-                        .toISeq();
+        final Random random = RandomRegistry.getRandom();
+        final int size = Polygon.size(require.positive(polygonLength));
+        final float[] data = new float[polygonCount*size];
+
+        final MSeq<PolygonGene> genes = MSeq.ofLength(polygonCount);
+        for (int i = 0; i < polygonCount; ++i) {
+            genes.set(i, of(Polygon.newRandom(polygonLength, random, data, i*size)));
+        }
+        return genes.toISeq();
     }
 
     public static PolygonGene of(final Polygon polygon) {
@@ -0,0 +1,71 @@
+package fmi.simmulation;
+
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.Phenotype;
+import io.jenetics.Recombinator;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.RandomRegistry;
+
+import java.util.Random;
+
+/**
+ * Polygon mean alterer class.
+ *
+ * Replaces one chromosome of an individual by the mean of it and the
+ * corresponding chromosome of another individual, like {@code MeanAlterer}.
+ * The means of all differing polygons are written into one array; equal
+ * polygons are kept.
+ *
+ * @param <C> the fitness type
+ */
+final class PolygonMeanAlterer<C extends Comparable<? super C>> extends Recombinator<PolygonGene, C> {
+
+    PolygonMeanAlterer(final double probability) {
+        super(probability, 2);
+    }
+
+    @Override
+    protected int recombine(final MSeq<Phenotype<PolygonGene, C>> population, final int[] individuals, final long generation) {
+        final Random random = RandomRegistry.getRandom();
+        final Phenotype<PolygonGene, C> pt1 = population.get(individuals[0]);
+        final Genotype<PolygonGene> gt1 = pt1.getGenotype();
+        final Genotype<PolygonGene> gt2 = population.get(individuals[1]).getGenotype();
+
+        final int index = random.nextInt(Math.min(gt1.length(), gt2.length()));
+        final MSeq<Chromosome<PolygonGene>> chromosomes = gt1.toSeq().copy();
+        chromosomes.set(index, mean(chromosomes.get(index), gt2.get(index)));
+        population.set(individuals[0], pt1.newInstance(Genotype.of(chromosomes), generation));
+
+        return 1;
+    }
+
+    private static Chromosome<PolygonGene> mean(final Chromosome<PolygonGene> that, final Chromosome<PolygonGene> other) {
+        final int length = that.getGene().getAllele().length();
+        final int size = Polygon.size(length);
+        final int genes = Math.min(that.length(), other.length());
+
+        int altered = 0;
+        for (int i = 0; i < genes; ++i) {
+            if (!that.getGene(i).getAllele().equals(other.getGene(i).getAllele())) {
+                ++altered;
+            }
+        }
+        if (altered == 0) {
+            return that;
+        }
+
+        final float[] data = new float[altered*size];
+        final MSeq<PolygonGene> mean = MSeq.of(that.toSeq());
+        for (int i = 0, slot = 0; i < genes; ++i) {
+            final Polygon a = that.getGene(i).getAllele();
+            final Polygon b = other.getGene(i).getAllele();
+            if (!a.equals(b)) {
+                mean.set(i, PolygonGene.of(Polygon.mean(a, b, data, (slot++)*size)));
+            }
+        }
+
+        return that.newInstance(mean.toISeq());
+    }
+
+}
@@ -2,33 +2,100 @@ package fmi.simmulation;
 import io.jenetics.Chromosome;
 import io.jenetics.Mutator;
 import io.jenetics.MutatorResult;
+import io.jenetics.util.MSeq;
 
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * Polygon mutator class.
  *
+ * The components of all polygons of a chromosome are treated as one
+ * sequence, in which the mutated components are found by a geometric
+ * skip-ahead instead of drawing a random number per component. Genes with
+ * no mutated component are kept, and a chromosome without mutations is
+ * returned unchanged.
+ *
  * @param <C> the fitness type
  */
 final class PolygonMutator<C extends Comparable<? super C>> extends Mutator<PolygonGene, C> {
 
     private final float _rate;
     private final float _magnitude;
+    private final double _logComplement;
+
+    /**
+     * The component indexes to mutate, for the chromosome currently mutated
+     * by the calling thread.
+     */
+    private final ThreadLocal<int[]> _indexes = ThreadLocal.withInitial(() -> new int[16]);
 
     PolygonMutator(final float rate, final float magnitude) {
         super(1.0);
         _rate = rate;
         _magnitude = magnitude;
+        _logComplement = Math.log(1.0 - rate);
     }
 
     @Override
     protected MutatorResult<Chromosome<PolygonGene>> mutate(final Chromosome<PolygonGene> chromosome, final double p, final Random random) {
+        final int length = chromosome.getGene().getAllele().length();
+        final int size = Polygon.size(length);
+
+        // Collect the mutated components and count the genes they belong to.
+        int[] indexes = _indexes.get();
+        int count = 0;
+        int altered = 0;
+        final long components = (long)chromosome.length()*size;
+        for (long next = skip(random); next < components; next += 1L + skip(random)) {
+            final int i = (int)next;
+            if (count == indexes.length) {
+                indexes = Arrays.copyOf(indexes, count*2);
+                _indexes.set(indexes);
+            }
+            if (count == 0 || indexes[count - 1]/size != i/size) {
+                ++altered;
+            }
+            indexes[count++] = i;
+        }
+
+        if (altered == 0) {
+            return MutatorResult.of(chromosome);
+        }
 
-        return MutatorResult.of(chromosome.newInstance(chromosome.toSeq().map(this::mutate)), chromosome.length());
+        // Copy the altered polygons into one array and mutate them there.
+        final float[] data = new float[altered*size];
+        final MSeq<PolygonGene> genes = MSeq.of(chromosome.toSeq());
+        for (int k = 0, slot = -1, gene = -1; k < count; ++k) {
+            final int index = indexes[k];
+            if (index/size != gene) {
+                gene = index/size;
+                chromosome.getGene(gene).getAllele().copyTo(data, (++slot)*size);
+                genes.set(gene, genes.get(gene).newInstance(Polygon.of(data, slot*size, length)));
+            }
+
+            final int component = slot*size + index%size;
+            data[component] = Polygon.mutate(data[component], _magnitude, random);
+        }
+
+        return MutatorResult.of(chromosome.newInstance(genes.toISeq()), altered);
     }
 
-    private PolygonGene mutate(final PolygonGene gene) {
-        return gene.newInstance(gene.getAllele().mutate(_rate, _magnitude));
+    /**
+     * Return the number of components, which are not mutated, before the
+     * next mutated one. The number is geometrically distributed with the
+     * mutation rate as success probability.
+     */
+    private int skip(final Random random) {
+        if (_rate >= 1F) {
+            return 0;
+        }
+        if (_rate <= 0F) {
+            return Integer.MAX_VALUE;
+        }
+
+        final double skip = Math.floor(Math.log(1.0 - random.nextDouble())/_logComplement);
+        return skip < Integer.MAX_VALUE ? (int)skip : Integer.MAX_VALUE;
     }
 
 }
@@ -0,0 +1,332 @@
+package fmi.simmulation;
+
+import java.util.Arrays;
+
+/**
+ * Scanline polygon filler, which composites the polygons with {@code SRC_OVER}
+ * alpha blending directly into an {@code int[]} ARGB buffer. The buffer is
+ * expected to be opaque, which is always the case for the white background
+ * of the fitness evaluation. Polygons are filled with the non-zero winding
+ * rule, like {@code GeneralPath}, and without anti-aliasing.
+ *
+ * A rasterizer instance keeps its scratch buffers between calls and must not
+ * be shared between threads.
+ */
+final class PolygonRasterizer {
+
+    private static final int WHITE = 0xFFFFFFFF;
+
+    /**
+     * Number of pixel rows which are composited and scored together by the
+     * fused {@link #difference(PolygonChromosome, int[], int, int)} method.
+     * Small enough that a band stays in the CPU cache.
+     */
+    static final int BAND_ROWS = 8;
+
+    private final int _width;
+    private final int _height;
+
+    private float[] _xs = new float[0];
+    private float[] _ys = new float[0];
+    private float[] _crossings = new float[0];
+    private int[] _windings = new int[0];
+    private final int[] _band;
+    private final long[] _prefixHashes = new long[PrefixRenderCache.POINTS];
+
+    // The state of the polygon prepared by the last setup call.
+    private int _vertices;
+    private int _rowFrom;
+    private int _rowTo;
+    private int _inverse;
+    private int _sr;
+    private int _sg;
+    private int _sb;
+
+    PolygonRasterizer(final int width, final int height) {
+        _width = width;
+        _height = height;
+        _band = new int[width*BAND_ROWS];
+    }
+
+    int width() {
+        return _width;
+    }
+
+    int height() {
+        return _height;
+    }
+
+    /**
+     * Clear the whole buffer and draw all polygons of the given chromosome.
+     */
+    void draw(final PolygonChromosome chromosome, final int[] pixels) {
+        draw(chromosome, pixels, 0, 0, _width, _height);
+    }
+
+    /**
+     * Clear the given rectangle, {@code [x0, x1)x[y0, y1)}, of the buffer and
+     * draw all polygons of the given chromosome, clipped to the rectangle.
+     */
+    void draw(final PolygonChromosome chromosome, final int[] pixels,
+              final int x0, final int y0, final int x1, final int y1)
+    {
+        clear(pixels, x0, y0, x1, y1);
+        for (PolygonGene gene : chromosome) {
+            fill(gene.getAllele(), pixels, x0, y0, x1, y1);
+        }
+    }
+
+    /**
+     * Draw all polygons of the given chromosome, starting with the longest
+     * cached prefix canvas, and cache the canvases of the longer prefixes.
+     */
+    void draw(final PolygonChromosome chromosome, final int[] pixels, final PrefixRenderCache cache) {
+        final long[] hashes = _prefixHashes;
+        PrefixRenderCache.hashes(chromosome, hashes);
+
+        final int start = cache.restore(chromosome, hashes, pixels);
+        if (start == 0) {
+            clear(pixels, 0, 0, _width, _height);
+        }
+
+        int i = start;
+        for (int point = 0; point < PrefixRenderCache.POINTS; ++point) {
+            final int length = PrefixRenderCache.prefix(point, chromosome.length());
+            if (length > i) {
+                for (; i < length; ++i) {
+                    fill(chromosome.getGene(i).getAllele(), pixels, 0, 0, _width, _height);
+                }
+                cache.store(chromosome, hashes[point], length, pixels);
+            }
+        }
+        for (; i < chromosome.length(); ++i) {
+            fill(chromosome.getGene(i).getAllele(), pixels, 0, 0, _width, _height);
+        }
+    }
+
+    /**
+     * Render the rows {@code [fromRow, toRow)} of the given chromosome and
+     * return their summed difference to the reference pixels. The rows are
+     * rendered band by band into a small scratch buffer, which is scored
+     * right after compositing, so every pixel is touched once while it is
+     * still in the cache, and the full image is never materialized.
+     */
+    long difference(final PolygonChromosome chromosome, final int[] reference, final int fromRow, final int toRow) {
+        final int[] band = _band;
+
+        long difference = 0;
+        for (int y0 = fromRow; y0 < toRow; y0 += BAND_ROWS) {
+            final int y1 = Math.min(y0 + BAND_ROWS, toRow);
+
+            Arrays.fill(band, 0, (y1 - y0)*_width, WHITE);
+            for (PolygonGene gene : chromosome) {
+                if (setup(gene.getAllele())) {
+                    final int rowTo = Math.min(y1, _rowTo);
+                    for (int y = Math.max(y0, _rowFrom); y < rowTo; ++y) {
+                        span(y, band, (y - y0)*_width, 0, _width);
+                    }
+                }
+            }
+            difference += PixelDifference.sum(band, 0, reference, y0*_width, (y1 - y0)*_width);
+        }
+
+        return difference;
+    }
+
+    /**
+     * Render the given, ascending pixel rows of the chromosome and return
+     * their summed difference to the reference pixels. The sampled rows are
+     * rendered {@link #BAND_ROWS} at a time into the band buffer, and every
+     * polygon is prepared once per band of sampled rows.
+     */
+    long difference(final PolygonChromosome chromosome, final int[] reference, final int[] rows) {
+        final int[] band = _band;
+
+        long difference = 0;
+        for (int from = 0; from < rows.length; from += BAND_ROWS) {
+            final int to = Math.min(from + BAND_ROWS, rows.length);
+
+            Arrays.fill(band, 0, (to - from)*_width, WHITE);
+            for (PolygonGene gene : chromosome) {
+                if (setup(gene.getAllele()) && _rowFrom <= rows[to - 1] && rows[from] < _rowTo) {
+                    int i = Arrays.binarySearch(rows, from, to, _rowFrom);
+                    for (i = i < 0 ? -i - 1 : i; i < to && rows[i] < _rowTo; ++i) {
+                        span(rows[i], band, (i - from)*_width, 0, _width);
+                    }
+                }
+            }
+            for (int i = from; i < to; ++i) {
+                difference += PixelDifference.sum(band, (i - from)*_width, reference, rows[i]*_width, _width);
+            }
+        }
+
+        return difference;
+    }
+
+    /**
+     * Fill the given rectangle, {@code [x0, x1)x[y0, y1)}, with white.
+     */
+    void clear(final int[] pixels, final int x0, final int y0, final int x1, final int y1) {
+        for (int y = y0; y < y1; ++y) {
+            Arrays.fill(pixels, y*_width + x0, y*_width + x1, WHITE);
+        }
+    }
+
+    /**
+     * Composite the given polygon into the buffer, clipped to the rectangle
+     * {@code [x0, x1)x[y0, y1)}.
+     */
+    void fill(final Polygon polygon, final int[] pixels,
+              final int x0, final int y0, final int x1, final int y1)
+    {
+        if (setup(polygon)) {
+            final int rowTo = Math.min(y1, _rowTo);
+            for (int y = Math.max(y0, _rowFrom); y < rowTo; ++y) {
+                span(y, pixels, y*_width, x0, x1);
+            }
+        }
+    }
+
+    /**
+     * Prepare the vertices and the color of the given polygon for the
+     * following {@link #span} calls.
+     *
+     * @return {@code false} if the polygon is fully transparent
+     */
+    private boolean setup(final Polygon polygon) {
+        final int argb = polygon.argb();
+        final int alpha = argb >>> 24;
+        if (alpha == 0) {
+            return false;
+        }
+
+        final int n = polygon.length();
+        ensureCapacity(n);
+
+        final float[] xs = _xs;
+        final float[] ys = _ys;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < n; ++i) {
+            xs[i] = polygon.x(i)*_width;
+            ys[i] = polygon.y(i)*_height;
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        // A pixel row is covered if its center lies within the polygon.
+        _vertices = n;
+        _rowFrom = Math.max(0, (int)Math.ceil(minY - 0.5F));
+        _rowTo = Math.min(_height, (int)Math.ceil(maxY - 0.5F));
+
+        _inverse = 255 - alpha;
+        _sr = ((argb >> 16) & 0xFF)*alpha;
+        _sg = ((argb >> 8) & 0xFF)*alpha;
+        _sb = (argb & 0xFF)*alpha;
+        return true;
+    }
+
+    /**
+     * Composite the pixel row {@code y} of the current polygon, clipped to
+     * {@code [x0, x1)}, into the buffer line starting at index {@code row}.
+     */
+    private void span(final int y, final int[] pixels, final int row, final int x0, final int x1) {
+        final int n = _vertices;
+        final float[] xs = _xs;
+        final float[] ys = _ys;
+        final float[] crossings = _crossings;
+        final int[] windings = _windings;
+        final float cy = y + 0.5F;
+
+        int count = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            final float ya = ys[j];
+            final float yb = ys[i];
+            final int winding = ya <= cy && cy < yb ? 1 : yb <= cy && cy < ya ? -1 : 0;
+            if (winding != 0) {
+                final float x = xs[j] + (cy - ya)*(xs[i] - xs[j])/(yb - ya);
+
+                // Insertion sort; polygons only have a handful of edges.
+                int k = count++;
+                while (k > 0 && crossings[k - 1] > x) {
+                    crossings[k] = crossings[k - 1];
+                    windings[k] = windings[k - 1];
+                    --k;
+                }
+                crossings[k] = x;
+                windings[k] = winding;
+            }
+        }
+
+        final int inverse = _inverse;
+        final int sr = _sr;
+        final int sg = _sg;
+        final int sb = _sb;
+
+        int winding = 0;
+        float start = 0;
+        for (int k = 0; k < count; ++k) {
+            final int previous = winding;
+            winding += windings[k];
+            if (previous == 0 && winding != 0) {
+                start = crossings[k];
+            } else if (previous != 0 && winding == 0) {
+                final int from = Math.max(x0, (int)Math.ceil(start - 0.5F));
+                final int to = Math.min(x1, (int)Math.ceil(crossings[k] - 0.5F));
+                for (int p = row + from, end = row + to; p < end; ++p) {
+                    final int d = pixels[p];
+                    pixels[p] = 0xFF000000 |
+                                    div255(sr + ((d >> 16) & 0xFF)*inverse) << 16 |
+                                    div255(sg + ((d >> 8) & 0xFF)*inverse) << 8 |
+                                    div255(sb + (d & 0xFF)*inverse);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extend the given {@code {x0, y0, x1, y1}} bounds, so that they contain all
+     * pixels covered by the given polygon.
+     */
+    void include(final Polygon polygon, final int[] bounds) {
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = polygon.length(); --i >= 0;) {
+            minX = Math.min(minX, polygon.x(i)*_width);
+            maxX = Math.max(maxX, polygon.x(i)*_width);
+            minY = Math.min(minY, polygon.y(i)*_height);
+            maxY = Math.max(maxY, polygon.y(i)*_height);
+        }
+
+        final int x0 = Math.max(0, (int)Math.ceil(minX - 0.5F));
+        final int y0 = Math.max(0, (int)Math.ceil(minY - 0.5F));
+        final int x1 = Math.min(_width, (int)Math.ceil(maxX - 0.5F));
+        final int y1 = Math.min(_height, (int)Math.ceil(maxY - 0.5F));
+        if (x0 < x1 && y0 < y1) {
+            bounds[0] = Math.min(bounds[0], x0);
+            bounds[1] = Math.min(bounds[1], y0);
+            bounds[2] = Math.max(bounds[2], x1);
+            bounds[3] = Math.max(bounds[3], y1);
+        }
+    }
+
+    /**
+     * Return {@code round(value/255)} for values within {@code [0, 255*255]}.
+     */
+    private static int div255(final int value) {
+        final int v = value + 128;
+        return (v + (v >> 8)) >> 8;
+    }
+
+    private void ensureCapacity(final int vertices) {
+        if (_xs.length < vertices) {
+            _xs = new float[vertices];
+            _ys = new float[vertices];
+            _crossings = new float[vertices];
+            _windings = new int[vertices];
+        }
+    }
+
+}
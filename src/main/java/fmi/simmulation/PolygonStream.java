@@ -0,0 +1,141 @@
+package fmi.simmulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import static java.lang.String.format;
+
+/**
+ * Writes the polygons of a chromosome as SVG or in a compact binary format.
+ * The size of both outputs depends on the number of polygons only, and they
+ * can be rasterized offline at any resolution.
+ *
+ * The binary format is big endian:
+ * <pre>
+ * int   magic ("EIPG")
+ * int   version
+ * byte  1 if delta encoded, 0 otherwise
+ * int   image width
+ * int   image height
+ * int   polygon count
+ * int   polygon length
+ * int   number of polygon records
+ * [int  polygon index, only if delta encoded]
+ * float polygon data, 4 + 2*polygon length
+ * ...
+ * </pre>
+ * A delta encoded file only contains the polygons which differ from the
+ * previous file written by the same {@code PolygonStream}.
+ */
+final class PolygonStream {
+
+    private static final int MAGIC = 0x45495047;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2*Integer.BYTES + 1 + 5*Integer.BYTES;
+
+    private final boolean _delta;
+
+    private PolygonChromosome _previous;
+
+    /**
+     * @param delta if {@code true}, only the polygons which changed since the
+     *        previous file are written
+     */
+    PolygonStream(final boolean delta) {
+        _delta = delta;
+    }
+
+    /**
+     * Write the polygons of the given chromosome to the given file.
+     */
+    void write(final Path path, final PolygonChromosome chromosome, final int width, final int height) throws IOException {
+        final PolygonChromosome previous = _delta ? _previous : null;
+        final boolean delta = previous != null && previous.length() == chromosome.length();
+        final int length = chromosome.getGene().getAllele().length();
+        final int size = Polygon.size(length);
+
+        int records = 0;
+        for (int i = 0; i < chromosome.length(); ++i) {
+            if (!delta || changed(previous, chromosome, i)) {
+                ++records;
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(
+                        HEADER_SIZE + records*((delta ? Integer.BYTES : 0) + size*Float.BYTES));
+        buffer.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .put((byte)(delta ? 1 : 0))
+                        .putInt(width)
+                        .putInt(height)
+                        .putInt(chromosome.length())
+                        .putInt(length)
+                        .putInt(records);
+
+        for (int i = 0; i < chromosome.length(); ++i) {
+            if (!delta || changed(previous, chromosome, i)) {
+                if (delta) {
+                    buffer.putInt(i);
+                }
+
+                final Polygon polygon = chromosome.getGene(i).getAllele();
+                for (int j = 0; j < size; ++j) {
+                    buffer.putFloat(polygon.get(j));
+                }
+            }
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE))
+        {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        _previous = chromosome;
+    }
+
+    private static boolean changed(final PolygonChromosome previous, final PolygonChromosome chromosome, final int index) {
+        final Polygon a = previous.getGene(index).getAllele();
+        final Polygon b = chromosome.getGene(index).getAllele();
+        return a != b && !a.equals(b);
+    }
+
+    /**
+     * Return the polygons of the given chromosome as SVG document of the
+     * given size, drawn over a white background.
+     */
+    static String svg(final PolygonChromosome chromosome, final int width, final int height) {
+        final StringBuilder out = new StringBuilder(64*chromosome.length());
+        out.append(format(Locale.ROOT,
+                        "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" viewBox=\"0 0 %d %d\">\n",
+                        width, height, width, height));
+        out.append("<rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/>\n");
+
+        for (PolygonGene gene : chromosome) {
+            final Polygon polygon = gene.getAllele();
+            final int argb = polygon.argb();
+
+            out.append("<polygon points=\"");
+            for (int i = 0; i < polygon.length(); ++i) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                out.append(format(Locale.ROOT, "%.2f,%.2f", polygon.x(i)*width, polygon.y(i)*height));
+            }
+            out.append(format(Locale.ROOT, "\" fill=\"#%06x\" fill-opacity=\"%.3f\"/>\n",
+                            argb & 0xFFFFFF, (argb >>> 24)/255.0));
+        }
+
+        return out.append("</svg>\n").toString();
+    }
+
+}
@@ -0,0 +1,284 @@
+package fmi.simmulation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Bounded cache of partially rendered canvases. Since the polygons are
+ * composited in order, two chromosomes which share their first {@code k}
+ * polygons also share the canvas after drawing them. The alterers create new
+ * gene instances for unchanged polygons, so a prefix is identified by a hash
+ * of its polygon data; every entry keeps a copy of the data, which is
+ * compared on a hit.
+ *
+ * Canvases are only cached at the {@link #POINTS} prefix lengths returned by
+ * {@link #prefix(int, int)}. The entries are split into stripes by the
+ * prefix hash, and every stripe is a small cache with its own lock, so the
+ * evaluation threads only contend for a stripe when they look up prefixes of
+ * the same stripe. Within a stripe, the entries are allocated up to its
+ * maximal number once, and the least recently used one is overwritten
+ * afterwards, so the cache doesn't allocate in the steady state. The cache
+ * is thread safe.
+ */
+final class PrefixRenderCache {
+
+    /**
+     * The number of prefix lengths, per chromosome, at which canvases are
+     * cached.
+     */
+    static final int POINTS = 3;
+
+    /**
+     * The default number of lock stripes.
+     */
+    static final int STRIPES = 16;
+
+    private final int _pixelCount;
+    private final Stripe[] _stripes;
+
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+
+    PrefixRenderCache(final int maxEntries, final int width, final int height) {
+        this(maxEntries, width, height, STRIPES);
+    }
+
+    /**
+     * Create a cache whose entries are split into the given number of
+     * stripes, but into at most one stripe per entry.
+     */
+    PrefixRenderCache(final int maxEntries, final int width, final int height, final int stripes) {
+        final int entries = Math.max(0, maxEntries);
+        final int count = Math.max(1, Math.min(stripes, entries));
+
+        _pixelCount = width*height;
+        _stripes = new Stripe[count];
+        for (int i = 0; i < count; ++i) {
+            _stripes[i] = new Stripe(entries/count + (i < entries%count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Return the length of the prefix, with the given index, of a chromosome
+     * with the given number of polygons. The prefixes split the chromosome
+     * into {@code POINTS + 1} equal parts.
+     */
+    static int prefix(final int point, final int length) {
+        return length*(point + 1)/(POINTS + 1);
+    }
+
+    /**
+     * Write the hashes of the prefixes of the given chromosome to the given
+     * array, which must have a length of {@link #POINTS}.
+     */
+    static void hashes(final PolygonChromosome chromosome, final long[] hashes) {
+        // FNV-1a over the bits of the polygon components.
+        long hash = 0xcbf29ce484222325L;
+        int gene = 0;
+        for (int point = 0; point < POINTS; ++point) {
+            for (final int length = prefix(point, chromosome.length()); gene < length; ++gene) {
+                final Polygon polygon = chromosome.getGene(gene).getAllele();
+                for (int j = 0, size = Polygon.size(polygon.length()); j < size; ++j) {
+                    hash = (hash ^ Float.floatToIntBits(polygon.get(j)))*0x100000001b3L;
+                }
+            }
+            hashes[point] = hash;
+        }
+    }
+
+    /**
+     * Copy the canvas of the longest cached prefix of the given chromosome into
+     * the given pixel buffer.
+     *
+     * @param hashes the prefix hashes of the chromosome
+     * @return the number of polygons already drawn on the restored canvas,
+     *         or zero if no prefix is cached and the pixels are unchanged
+     */
+    int restore(final PolygonChromosome chromosome, final long[] hashes, final int[] pixels) {
+        for (int point = POINTS; --point >= 0;) {
+            final int length = prefix(point, chromosome.length());
+            if (stripe(hashes[point]).restore(chromosome, hashes[point], length, pixels)) {
+                _hits.increment();
+                return length;
+            }
+        }
+
+        _misses.increment();
+        return 0;
+    }
+
+    /**
+     * Cache a copy of the given canvas, which contains the first
+     * {@code length} polygons of the chromosome, unless it is already cached.
+     *
+     * @param hash the hash of the prefix
+     */
+    void store(final PolygonChromosome chromosome, final long hash, final int length, final int[] pixels) {
+        stripe(hash).store(chromosome, hash, length, pixels);
+    }
+
+    private Stripe stripe(final long hash) {
+        return _stripes[Math.floorMod(Long.hashCode(hash), _stripes.length)];
+    }
+
+    long getHits() {
+        return _hits.sum();
+    }
+
+    long getMisses() {
+        return _misses.sum();
+    }
+
+    long getEvictions() {
+        return _evictions.sum();
+    }
+
+    double getHitRate() {
+        final long hits = getHits();
+        final long lookups = hits + getMisses();
+        return lookups > 0 ? hits/(double)lookups : 0.0;
+    }
+
+    int getEntries() {
+        int entries = 0;
+        for (Stripe stripe : _stripes) {
+            entries += stripe.size();
+        }
+        return entries;
+    }
+
+    /**
+     * Return the (approximate) number of bytes used by the cached canvases
+     * and their polygon data.
+     */
+    long getMemoryUsage() {
+        long bytes = 0;
+        for (Stripe stripe : _stripes) {
+            bytes += stripe.memoryUsage;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return format("hit rate=%1.2f, entries=%d, evictions=%d, memory=%dkB",
+                        getHitRate(), getEntries(), getEvictions(), getMemoryUsage()/1024);
+    }
+
+    /**
+     * The entries of the prefixes whose hash selects this stripe, guarded by
+     * the lock of the stripe.
+     */
+    private final class Stripe {
+        private final Entry[] _entries;
+        private int _size = 0;
+        private long _clock = 0;
+        volatile long memoryUsage = 0;
+
+        Stripe(final int maxEntries) {
+            _entries = new Entry[maxEntries];
+        }
+
+        synchronized boolean restore(final PolygonChromosome chromosome, final long hash, final int length, final int[] pixels) {
+            final Entry entry = find(chromosome, hash, length);
+            if (entry != null) {
+                System.arraycopy(entry.canvas, 0, pixels, 0, _pixelCount);
+                entry.used = ++_clock;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void store(final PolygonChromosome chromosome, final long hash, final int length, final int[] pixels) {
+            if (_entries.length == 0 || find(chromosome, hash, length) != null) {
+                return;
+            }
+
+            final Entry entry;
+            if (_size < _entries.length) {
+                entry = new Entry(_pixelCount);
+                _entries[_size++] = entry;
+            } else {
+                entry = leastRecentlyUsed();
+                _evictions.increment();
+            }
+
+            final int size = Polygon.size(chromosome.getGene().getAllele().length());
+            if (entry.data.length < length*size) {
+                entry.data = new float[length*size];
+                memoryUsage = memoryUsage();
+            }
+            for (int i = 0; i < length; ++i) {
+                chromosome.getGene(i).getAllele().copyTo(entry.data, i*size);
+            }
+            System.arraycopy(pixels, 0, entry.canvas, 0, _pixelCount);
+            entry.hash = hash;
+            entry.length = length;
+            entry.used = ++_clock;
+        }
+
+        synchronized int size() {
+            return _size;
+        }
+
+        private Entry find(final PolygonChromosome chromosome, final long hash, final int length) {
+            for (int i = 0; i < _size; ++i) {
+                final Entry entry = _entries[i];
+                if (entry.hash == hash && entry.length == length && entry.matches(chromosome)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private Entry leastRecentlyUsed() {
+            Entry eldest = _entries[0];
+            for (int i = 1; i < _size; ++i) {
+                if (_entries[i].used < eldest.used) {
+                    eldest = _entries[i];
+                }
+            }
+            return eldest;
+        }
+
+        private long memoryUsage() {
+            long bytes = 0;
+            for (int i = 0; i < _size; ++i) {
+                bytes += (long)_entries[i].canvas.length*Integer.BYTES + (long)_entries[i].data.length*Float.BYTES;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * A cached canvas together with the polygon data of its prefix. Entries
+     * are reused for other prefixes when they are evicted.
+     */
+    private static final class Entry {
+        final int[] canvas;
+        float[] data = new float[0];
+        long hash;
+        int length = -1;
+        long used = 0;
+
+        Entry(final int pixelCount) {
+            canvas = new int[pixelCount];
+        }
+
+        boolean matches(final PolygonChromosome chromosome) {
+            final int size = Polygon.size(chromosome.getGene().getAllele().length());
+            for (int i = 0; i < length; ++i) {
+                final Polygon polygon = chromosome.getGene(i).getAllele();
+                for (int j = 0; j < size; ++j) {
+                    if (Float.floatToIntBits(polygon.get(j)) != Float.floatToIntBits(data[i*size + j])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+package fmi.simmulation;
+
+import fmi.recognition.Recognizer;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionResult;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.lang.String.format;
+
+/**
+ * Combines the pixel fitness with the probability the {@link Recognizer}
+ * assigns to a target label:
+ * <pre>
+ * fitness = (1 - weight)*pixel fitness + weight*probability
+ * </pre>
+ * Classifying an image takes much longer than rendering it, so only the
+ * best individuals are classified, every given number of generations, by a
+ * background thread. The evolution never waits for it; while the model is
+ * still loading, or the previous classifications haven't finished, the
+ * next ones are skipped. If the model can't be loaded, the fitness stays
+ * the pixel fitness, scaled by {@code 1 - weight}.
+ *
+ * The probabilities are cached by the content hash of the chromosomes,
+ * together with a copy of their polygon data, which is compared on a hit. A
+ * chromosome which hasn't been classified inherits the probability of its
+ * nearest classified ancestor, so the offspring of well recognized
+ * individuals is preferred. Unknown probabilities count as zero.
+ */
+final class RecognitionFitness implements AutoCloseable {
+
+    // The input size of the Inception graph.
+    private static final int IMAGE_SIZE = 299;
+    private static final int CACHE_SIZE = 4096;
+
+    private final CompletableFuture<Recognizer> _recognizer;
+    private final String _label;
+    private final double _weight;
+    private final int _top;
+    private final int _interval;
+
+    private final Map<Long, Score> _scores = Collections.synchronizedMap(new LinkedHashMap<Long, Score>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Score> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "recognition");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean _busy = new AtomicBoolean(false);
+    // Only used by the recognition thread.
+    private final BufferedImage _image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, TYPE_INT_RGB);
+
+    private final LongAdder _classified = new LongAdder();
+    private final LongAdder _cacheHits = new LongAdder();
+    private final LongAdder _skipped = new LongAdder();
+    private final LongAdder _failed = new LongAdder();
+    private final LongAdder _classifyTime = new LongAdder();
+    private volatile float _bestScore = Float.NaN;
+
+    private RecognitionFitness(
+                    final CompletableFuture<Recognizer> recognizer,
+                    final String label,
+                    final double weight,
+                    final int top,
+                    final int interval)
+    {
+        _recognizer = recognizer;
+        _label = label;
+        _weight = weight;
+        _top = top;
+        _interval = interval;
+    }
+
+    /**
+     * Return the hybrid fitness of the given chromosome with the given pixel
+     * fitness.
+     */
+    double fitness(final PolygonChromosome chromosome, final double pixelFitness) {
+        final float score = score(chromosome);
+        return (1 - _weight)*pixelFitness + _weight*(Float.isNaN(score) ? 0 : score);
+    }
+
+    private float score(final PolygonChromosome chromosome) {
+        final Score cached = cached(chromosome);
+        return cached != null ? cached.value : chromosome.recognition();
+    }
+
+    /**
+     * Return the cached score of the given chromosome, or {@code null} if it
+     * isn't cached, or its hash collides with the one of another chromosome.
+     */
+    private Score cached(final PolygonChromosome chromosome) {
+        final Score score = _scores.get(chromosome.contentHash());
+        return score != null && score.matches(chromosome) ? score : null;
+    }
+
+    /**
+     * Classify the best individuals of the given result in the background,
+     * if it is a generation to do so and the previous classifications have
+     * finished. Returns immediately.
+     */
+    void update(final EvolutionResult<PolygonGene, Double> result) {
+        if (result.getGeneration()%_interval != 0 || _recognizer.isCompletedExceptionally()) {
+            return;
+        }
+        if (!_recognizer.isDone() || !_busy.compareAndSet(false, true)) {
+            _skipped.increment();
+            return;
+        }
+
+        final List<PolygonChromosome> best = result.getPopulation().stream()
+                        .sorted(Comparator.reverseOrder())
+                        .limit(_top)
+                        .map(Phenotype::getGenotype)
+                        .map(gt -> (PolygonChromosome)gt.getChromosome())
+                        .collect(Collectors.toList());
+
+        _executor.execute(() -> {
+            try {
+                float score = Float.NaN;
+                for (PolygonChromosome chromosome : best) {
+                    final float s = classify(chromosome);
+                    score = Float.isNaN(score) ? s : Math.max(score, s);
+                }
+                _bestScore = score;
+            } catch (RuntimeException e) {
+                _failed.increment();
+            } finally {
+                _busy.set(false);
+            }
+        });
+    }
+
+    private float classify(final PolygonChromosome chromosome) {
+        final Score cached = cached(chromosome);
+        final float score;
+        if (cached != null) {
+            score = cached.value;
+            _cacheHits.increment();
+        } else {
+            final long start = System.nanoTime();
+            // Rendered at the input size of the graph, and fed without resizing.
+            final Graphics2D graphics = _image.createGraphics();
+            chromosome.draw(graphics, IMAGE_SIZE, IMAGE_SIZE);
+            graphics.dispose();
+
+            score = _recognizer.join().classify(_image).getProbability(_label);
+            _scores.put(chromosome.contentHash(), new Score(chromosome.toArray(), score));
+            _classified.increment();
+            _classifyTime.add(System.nanoTime() - start);
+        }
+
+        chromosome.recognition(score);
+        return score;
+    }
+
+    /**
+     * Return the highest probability of the target label among the latest
+     * classified individuals, or {@code NaN} if there are none yet.
+     */
+    float getBestScore() {
+        return _bestScore;
+    }
+
+    long getClassified() {
+        return _classified.sum();
+    }
+
+    long getCacheHits() {
+        return _cacheHits.sum();
+    }
+
+    long getSkipped() {
+        return _skipped.sum();
+    }
+
+    long getFailed() {
+        return _failed.sum();
+    }
+
+    /**
+     * Return the reason the model couldn't be loaded, or {@code null} if it
+     * is loaded or still loading.
+     */
+    Throwable getError() {
+        try {
+            _recognizer.getNow(null);
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final Throwable error = getError();
+        if (error != null) {
+            return format("label='%s', disabled: %s", _label, error);
+        }
+        if (!_recognizer.isDone()) {
+            return format("label='%s', loading model", _label);
+        }
+
+        final long classified = _classified.sum();
+        return format("label='%s', best score=%1.4f, classified=%d, cache hits=%d, skipped=%d, failed=%d, time=%1.1fms/image",
+                        _label, _bestScore, classified, _cacheHits.sum(), _skipped.sum(), _failed.sum(),
+                        classified > 0 ? _classifyTime.sum()/(classified*1e6) : 0.0);
+    }
+
+    /**
+     * Stop classifying, after the running classifications have finished.
+     * The recognizer isn't closed. If the calling thread is interrupted
+     * while waiting, the running classification is interrupted and the
+     * interrupt status is restored.
+     */
+    @Override
+    public void close() {
+        _executor.shutdown();
+        try {
+            _executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            _executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Create a hybrid fitness for the given target label, with the
+     * recognizer which is loaded by the given future. An unknown label
+     * disables the recognition, like a failed load.
+     *
+     * @param weight the weight of the probability, between zero and one
+     * @param top the number of best individuals which are classified
+     * @param interval the number of generations between classifications
+     * @throws IllegalArgumentException if the weight isn't between zero and
+     *         one
+     */
+    static RecognitionFitness of(
+                    final CompletableFuture<Recognizer> recognizer,
+                    final String label,
+                    final double weight,
+                    final int top,
+                    final int interval)
+    {
+        if (weight < 0 || weight > 1) {
+            throw new IllegalArgumentException(format("Weight must be between 0 and 1: %s", weight));
+        }
+
+        final CompletableFuture<Recognizer> checked = recognizer.thenApply(r -> {
+            if (!r.getLabels().contains(label)) {
+                throw new IllegalArgumentException(format("Unknown label: '%s'", label));
+            }
+            return r;
+        });
+        return new RecognitionFitness(checked, label, weight, Math.max(1, top), Math.max(1, interval));
+    }
+
+    /**
+     * A cached probability, with the polygon data of its chromosome.
+     */
+    private static final class Score {
+        final float[] data;
+        final float value;
+
+        Score(final float[] data, final float value) {
+            this.data = data;
+            this.value = value;
+        }
+
+        boolean matches(final PolygonChromosome chromosome) {
+            int index = 0;
+            for (int i = 0, n = chromosome.length(); i < n; ++i) {
+                final Polygon polygon = chromosome.getGene(i).getAllele();
+                final int size = Polygon.size(polygon.length());
+                if (index + size > data.length) {
+                    return false;
+                }
+                for (int j = 0; j < size; ++j) {
+                    if (Float.floatToIntBits(polygon.get(j)) != Float.floatToIntBits(data[index++])) {
+                        return false;
+                    }
+                }
+            }
+            return index == data.length;
+        }
+    }
+
+}
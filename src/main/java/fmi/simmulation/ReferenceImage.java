@@ -0,0 +1,132 @@
+package fmi.simmulation;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * The reference image, resized to the resolution the fitness is evaluated
+ * at, together with the per-thread working buffers of this resolution.
+ */
+final class ReferenceImage {
+
+    private static final double GOLDEN_RATIO_CONJUGATE = 0.6180339887498949;
+
+    private final int _width;
+    private final int _height;
+    private final int[] _pixels;
+    private final ThreadLocal<BufferedImage> _workingImage;
+    private final ThreadLocal<PolygonRasterizer> _rasterizer;
+    private final PrefixRenderCache _prefixCache;
+
+    private volatile SampleRows _sampleRows;
+
+    private ReferenceImage(final BufferedImage image, final int prefixCacheSize) {
+        _width = image.getWidth();
+        _height = image.getHeight();
+        _pixels = pixels(image);
+        _workingImage = ThreadLocal.withInitial(() -> new BufferedImage(_width, _height, BufferedImage.TYPE_INT_ARGB));
+        _rasterizer = ThreadLocal.withInitial(() -> new PolygonRasterizer(_width, _height));
+        _prefixCache = prefixCacheSize > 0
+                        ? new PrefixRenderCache(prefixCacheSize, _width, _height)
+                        : null;
+    }
+
+    int width() {
+        return _width;
+    }
+
+    int height() {
+        return _height;
+    }
+
+    /**
+     * Return the packed ARGB pixels of the reference image.
+     */
+    int[] pixels() {
+        return _pixels;
+    }
+
+    /**
+     * Return the working image of the calling thread.
+     */
+    BufferedImage workingImage() {
+        return _workingImage.get();
+    }
+
+    /**
+     * Return the rasterizer of the calling thread.
+     */
+    PolygonRasterizer rasterizer() {
+        return _rasterizer.get();
+    }
+
+    /**
+     * Return the prefix render cache, or {@code null} if it is disabled.
+     */
+    PrefixRenderCache prefixCache() {
+        return _prefixCache;
+    }
+
+    /**
+     * Return the ascending pixel rows a sampled fitness is estimated from.
+     * The rows are spread evenly over the image, with an offset depending on
+     * the given phase. For a constant phase the same rows are returned.
+     *
+     * @param pixels the number of pixels to sample
+     * @param phase the sampling phase, which rotates the sampled rows
+     */
+    int[] sampleRows(final int pixels, final int phase) {
+        SampleRows rows = _sampleRows;
+        if (rows == null || rows.pixels != pixels || rows.phase != phase) {
+            final int count = Math.max(1, Math.min(_height, (pixels + _width - 1)/_width));
+            final double offset = (phase*GOLDEN_RATIO_CONJUGATE)%1.0;
+
+            final int[] values = new int[count];
+            for (int i = 0; i < count; ++i) {
+                values[i] = (int)((i + offset)*_height/count);
+            }
+
+            rows = new SampleRows(pixels, phase, values);
+            _sampleRows = rows;
+        }
+
+        return rows.rows;
+    }
+
+    /**
+     * Return the backing ARGB array of the given {@code TYPE_INT_ARGB} image.
+     * Changes of the image are directly visible in the returned array.
+     */
+    static int[] pixels(final BufferedImage image) {
+        return ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Create a reference image by resizing the given image.
+     *
+     * @param prefixCacheSize the size of the prefix render cache, zero
+     *        disables the cache
+     */
+    static ReferenceImage of(final BufferedImage image, final int width, final int height, final int prefixCacheSize) {
+        final BufferedImage resizedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = resizedImage.createGraphics();
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+
+        return new ReferenceImage(resizedImage, prefixCacheSize);
+    }
+
+    private static final class SampleRows {
+        final int pixels;
+        final int phase;
+        final int[] rows;
+
+        SampleRows(final int pixels, final int phase, final int[] rows) {
+            this.pixels = pixels;
+            this.phase = phase;
+            this.rows = rows;
+        }
+    }
+
+}
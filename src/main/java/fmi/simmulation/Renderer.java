@@ -0,0 +1,48 @@
+package fmi.simmulation;
+
+import java.util.Locale;
+
+import static java.lang.String.format;
+
+/**
+ * The available renderers for drawing the polygons of a chromosome during the
+ * fitness evaluation.
+ */
+enum Renderer {
+
+    /**
+     * Anti-aliased rendering via the generic {@code Graphics2D} pipeline.
+     */
+    JAVA2D,
+
+    /**
+     * Scanline rendering directly into the {@code int[]} ARGB buffer of the
+     * working image, see {@link PolygonRasterizer}.
+     */
+    SOFTWARE,
+
+    /**
+     * Scanline rendering, where the difference to the reference image is
+     * accumulated band by band while compositing, without materializing the
+     * working image, see {@link PolygonRasterizer#difference}.
+     */
+    FUSED;
+
+    /**
+     * Return the property value of this renderer.
+     */
+    String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    static Renderer parse(final String value) {
+        for (Renderer renderer : values()) {
+            if (renderer.key().equalsIgnoreCase(value.trim())) {
+                return renderer;
+            }
+        }
+
+        throw new IllegalArgumentException(format("Unknown renderer: '%s'", value));
+    }
+
+}
@@ -0,0 +1,72 @@
+package fmi.simmulation;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * The file formats the snapshots of the best chromosome are written in.
+ */
+enum SnapshotFormat {
+
+    /**
+     * Raster image, rendered with at least 500 pixels per side.
+     */
+    PNG("png"),
+
+    /**
+     * Vector image with one {@code <polygon>} element per gene.
+     */
+    SVG("svg"),
+
+    /**
+     * Compact binary polygon stream, optionally delta encoded against the
+     * previous snapshot, see {@link PolygonStream}.
+     */
+    POLYGONS("poly");
+
+    private final String _extension;
+
+    SnapshotFormat(final String extension) {
+        _extension = extension;
+    }
+
+    /**
+     * Return the command line value of this format.
+     */
+    String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Return the file name extension of this format.
+     */
+    String extension() {
+        return _extension;
+    }
+
+    static SnapshotFormat parse(final String value) {
+        for (SnapshotFormat format : values()) {
+            if (format.key().equalsIgnoreCase(value.trim())) {
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException(format("Unknown snapshot format: '%s'", value));
+    }
+
+    /**
+     * Parse a comma separated list of formats, e.g. {@code svg,polygons}.
+     */
+    static Set<SnapshotFormat> parseAll(final String value) {
+        final Set<SnapshotFormat> formats = EnumSet.noneOf(SnapshotFormat.class);
+        for (String format : value.split(",")) {
+            formats.add(parse(format));
+        }
+
+        return formats;
+    }
+
+}
@@ -0,0 +1,168 @@
+package fmi.simmulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Renders and writes the image snapshots of the evolution on a background
+ * thread, so that the evolution doesn't wait for the PNG encoding and the
+ * disk. The number of pending snapshots is bounded; if the writer falls
+ * behind, the oldest pending snapshot is dropped in favour of the newest.
+ * Every snapshot is written in each of the configured formats.
+ */
+final class SnapshotWriter implements AutoCloseable {
+
+    private final Set<SnapshotFormat> _formats;
+    private final PolygonStream _polygons;
+    private final ThreadPoolExecutor _executor;
+
+    private final LongAdder _written = new LongAdder();
+    private final LongAdder _dropped = new LongAdder();
+    private final LongAdder _failed = new LongAdder();
+    private final LongAdder _writeNanos = new LongAdder();
+
+    /**
+     * @param capacity the maximal number of pending snapshots
+     * @param formats the formats every snapshot is written in
+     * @param delta if {@code true}, polygon stream snapshots only contain the
+     *        polygons changed since the previous one
+     * @throws IllegalArgumentException if the capacity is less than one
+     */
+    SnapshotWriter(final int capacity, final Set<SnapshotFormat> formats, final boolean delta) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(format("Snapshot queue capacity must be at least 1: %d", capacity));
+        }
+        _formats = EnumSet.copyOf(formats);
+        _polygons = new PolygonStream(delta);
+        _executor = new ThreadPoolExecutor(
+                        1, 1, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(capacity),
+                        runnable -> {
+                            final Thread thread = new Thread(runnable, "snapshot-writer");
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        (runnable, executor) -> {
+                            if (!executor.isShutdown()) {
+                                _dropped.increment();
+                                executor.getQueue().poll();
+                                executor.execute(runnable);
+                            }
+                        });
+    }
+
+    /**
+     * Queue the given chromosome to be written to the given directory. The
+     * file name is the given name plus the extension of the format.
+     */
+    void write(final File dir, final String name, final PolygonChromosome chromosome, final int width, final int height) {
+        _executor.execute(() -> {
+            for (SnapshotFormat format : _formats) {
+                final File file = new File(dir, name + "." + format.extension());
+                final long start = System.nanoTime();
+                try {
+                    write(format, file, chromosome, width, height);
+                    _written.increment();
+                } catch (IOException | UncheckedIOException e) {
+                    _failed.increment();
+                    System.err.println(format("Can't write '%s': %s", file, e));
+                } finally {
+                    _writeNanos.add(System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    private void write(
+                    final SnapshotFormat format,
+                    final File file,
+                    final PolygonChromosome chromosome,
+                    final int width,
+                    final int height)
+                    throws IOException
+    {
+        switch (format) {
+            case SVG:
+                Files.write(file.toPath(), PolygonStream.svg(chromosome, width, height).getBytes(StandardCharsets.UTF_8));
+                break;
+            case POLYGONS:
+                _polygons.write(file.toPath(), chromosome, width, height);
+                break;
+            default:
+                EvolvingImages.writeImage(file, chromosome, width, height);
+        }
+    }
+
+    /**
+     * Return the number of snapshots waiting to be written.
+     */
+    int getQueueDepth() {
+        return _executor.getQueue().size();
+    }
+
+    long getWritten() {
+        return _written.sum();
+    }
+
+    long getDropped() {
+        return _dropped.sum();
+    }
+
+    long getFailed() {
+        return _failed.sum();
+    }
+
+    /**
+     * Return the total time, in milliseconds, spent writing snapshot files.
+     */
+    double getWriteTime() {
+        return _writeNanos.sum()/1_000_000.0;
+    }
+
+    /**
+     * Publish the statistics of this writer as gauges of the given metrics.
+     */
+    void registerMetrics(final Metrics metrics) {
+        metrics.gauge("snapshot_queue_depth", this::getQueueDepth);
+        metrics.gauge("snapshots_written", this::getWritten);
+        metrics.gauge("snapshots_dropped", this::getDropped);
+        metrics.gauge("snapshots_failed", this::getFailed);
+        metrics.gauge("snapshot_write_ms", this::getWriteTime);
+    }
+
+    @Override
+    public String toString() {
+        final long writes = getWritten() + getFailed();
+        return format("queue=%d, written=%d, dropped=%d, failed=%d, write time=%1.1fms (%1.1fms/file)",
+                        getQueueDepth(), getWritten(), getDropped(), getFailed(),
+                        getWriteTime(), writes > 0 ? getWriteTime()/writes : 0.0);
+    }
+
+    /**
+     * Write the pending snapshots and stop the writer thread. If the calling
+     * thread is interrupted while waiting, the pending snapshots are dropped
+     * and the interrupt status is restored.
+     */
+    @Override
+    public void close() {
+        _executor.shutdown();
+        try {
+            _executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            _executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package fmi.simmulation;
+
+import io.jenetics.engine.EvolutionResult;
+import io.jenetics.engine.Limits;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+
+/**
+ * The stopping rules of an evolution, used as limit of the evolution stream.
+ * The evolution ends as soon as one of the enabled rules applies:
+ * <ul>
+ *     <li>the maximal (absolute) generation has been reached,</li>
+ *     <li>the best fitness exceeds the target fitness,</li>
+ *     <li>the time budget is used up, or</li>
+ *     <li>the best fitness hasn't improved for a number of generations.</li>
+ * </ul>
+ * The target fitness and stagnation rules only apply at the final level of
+ * the resolution schedule, since the fitness of the lower resolutions is
+ * not comparable. An instance is stateful and must be used for one
+ * evolution only.
+ */
+final class Termination implements Predicate<EvolutionResult<PolygonGene, Double>> {
+
+    private final long _generations;
+    private final Predicate<? super EvolutionResult<PolygonGene, Double>> _fitness;
+    private final Predicate<? super EvolutionResult<PolygonGene, Double>> _time;
+    private final Predicate<? super EvolutionResult<PolygonGene, Double>> _stagnation;
+    private final BooleanSupplier _finalLevel;
+
+    private volatile String _reason;
+
+    private Termination(
+                    final long generations,
+                    final double targetFitness,
+                    final Duration timeBudget,
+                    final int stagnation,
+                    final BooleanSupplier finalLevel)
+    {
+        _generations = generations;
+        _fitness = targetFitness < 1.0 ? Limits.byFitnessThreshold(targetFitness) : null;
+        _time = timeBudget != null && !timeBudget.isZero() ? Limits.byExecutionTime(timeBudget) : null;
+        _stagnation = stagnation > 0 ? Limits.bySteadyFitness(stagnation) : null;
+        _finalLevel = finalLevel;
+    }
+
+    @Override
+    public boolean test(final EvolutionResult<PolygonGene, Double> result) {
+        // The generations of a resumed evolution don't start at one, so the
+        // absolute generation is tested instead of Limits.byFixedGeneration.
+        if (_generations > 0 && result.getGeneration() >= _generations) {
+            return stop(format("generation %d reached", _generations));
+        }
+        if (_time != null && !_time.test(result)) {
+            return stop("time budget used up");
+        }
+        if (_finalLevel.getAsBoolean()) {
+            if (_fitness != null && !_fitness.test(result)) {
+                return stop(format("target fitness reached: %1.4f", result.getBestFitness()));
+            }
+            if (_stagnation != null && !_stagnation.test(result)) {
+                return stop("fitness stagnated");
+            }
+        }
+
+        return true;
+    }
+
+    private boolean stop(final String reason) {
+        _reason = reason;
+        return false;
+    }
+
+    /**
+     * Return the reason the evolution has been stopped for, or {@code null}
+     * if it hasn't been stopped by this termination.
+     */
+    String getReason() {
+        return _reason;
+    }
+
+    /**
+     * Create the stopping rules for the given worker.
+     *
+     * @param generations the maximal generation, zero disables the rule
+     * @param targetFitness the target fitness, one disables the rule
+     * @param timeBudget the time budget, {@code null} or zero disables the
+     *        rule
+     * @param stagnation the number of generations without improvement, zero
+     *        disables the rule
+     */
+    static Termination of(
+                    final EvolvingImagesWorker worker,
+                    final long generations,
+                    final double targetFitness,
+                    final Duration timeBudget,
+                    final int stagnation)
+    {
+        return new Termination(generations, targetFitness, timeBudget, stagnation, worker::isFinalLevel);
+    }
+
+}
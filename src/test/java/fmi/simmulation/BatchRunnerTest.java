@@ -0,0 +1,121 @@
+package fmi.simmulation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchRunnerTest {
+
+    @Rule
+    public final TemporaryFolder _folder = new TemporaryFolder();
+
+    private static EngineParam param() {
+        return EngineParam.builder()
+                        .populationSize(20)
+                        .tournamentSize(2)
+                        .mutationRate(0.01F)
+                        .mutationMultitude(0.1F)
+                        .polygonLength(4)
+                        .polygonCount(10)
+                        .referenceImageSize(new Dimension(50, 50))
+                        .renderer(Renderer.SOFTWARE)
+                        .evaluationThreads(2)
+                        .build();
+    }
+
+    private static void image(final File file, final Color color) throws Exception {
+        final BufferedImage image = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2 = image.createGraphics();
+        g2.setColor(color);
+        g2.fillRect(10, 10, 30, 30);
+        g2.dispose();
+        ImageIO.write(image, "png", file);
+    }
+
+    private static BatchRunner batch(final File source, final File output) throws Exception {
+        return BatchRunner.of(param(), source.toPath(), output, 20, 1.0, Duration.ZERO, 0, 2, EnumSet.of(SnapshotFormat.POLYGONS));
+    }
+
+    private BatchRunner runner(final File images, final File output) throws Exception {
+        image(new File(images, "red.png"), Color.RED);
+        image(new File(images, "blue.png"), Color.BLUE);
+
+        return batch(images, output);
+    }
+
+    private static List<String> summary(final File output) throws Exception {
+        return Files.readAllLines(new File(output, "summary.csv").toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void jobsAreDone() throws Exception {
+        final File output = _folder.newFolder("output");
+        final BatchRunner runner = runner(_folder.newFolder("images"), output);
+        try (MetricsExporter metrics = MetricsExporter.open(-1)) {
+            runner.run(metrics);
+        }
+
+        final List<String> summary = summary(output);
+        assertEquals(3, summary.size());
+        for (String line : summary.subList(1, summary.size())) {
+            assertEquals(line, "done", line.split(",")[2]);
+        }
+    }
+
+    @Test
+    public void failingFitnessFailsTheJob() throws Exception {
+        final File output = _folder.newFolder("output");
+        final BatchRunner runner = runner(_folder.newFolder("images"), output);
+        runner.evaluationListener(chromosome -> {
+            throw new IllegalStateException("Evaluation failed");
+        });
+        try (MetricsExporter metrics = MetricsExporter.open(-1)) {
+            runner.run(metrics);
+        }
+
+        final List<String> summary = summary(output);
+        assertEquals(3, summary.size());
+        for (String line : summary.subList(1, summary.size())) {
+            final String status = line.split(",")[2];
+            assertTrue(line, status.startsWith("failed"));
+            assertTrue(line, status.contains("Evaluation failed"));
+        }
+    }
+
+    @Test
+    public void jobNamesAreUnique() throws Exception {
+        final File dir = _folder.newFolder("images");
+        image(new File(_folder.newFolder("images", "a"), "cat.png"), Color.RED);
+        image(new File(_folder.newFolder("images", "b"), "cat.png"), Color.BLUE);
+        final File manifest = new File(dir, "manifest.txt");
+        Files.write(manifest.toPath(), Arrays.asList("a/cat.png", "b/cat.png"), StandardCharsets.UTF_8);
+
+        final File output = _folder.newFolder("output");
+        try (MetricsExporter metrics = MetricsExporter.open(-1)) {
+            batch(manifest, output).run(metrics);
+        }
+
+        final List<String> summary = summary(output);
+        assertEquals(3, summary.size());
+        assertEquals("cat", summary.get(1).split(",")[0]);
+        assertEquals("cat-2", summary.get(2).split(",")[0]);
+        for (String line : summary.subList(1, summary.size())) {
+            assertEquals(line, "done", line.split(",")[2]);
+        }
+    }
+
+}